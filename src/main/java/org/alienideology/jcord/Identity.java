@@ -14,7 +14,9 @@ import org.alienideology.jcord.handle.modifiers.ISelfModifier;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.handle.user.IWebhook;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
+import org.alienideology.jcord.internal.gateway.ShardManager;
 import org.alienideology.jcord.internal.rest.ErrorResponse;
+import org.alienideology.jcord.internal.rest.RestMetrics;
 import org.alienideology.jcord.util.log.Logger;
 import org.jetbrains.annotations.Nullable;
 
@@ -149,6 +151,23 @@ public interface Identity {
      */
     ISelfModifier getSelfModifier();
 
+    /**
+     * Get the metrics of this identity's rest requests, such as the latency and the number of rate limits of each route.
+     * @see RestMetrics
+     *
+     * @return The rest metrics.
+     */
+    RestMetrics getRestMetrics();
+
+    /**
+     * Get the shard manager of this identity, which holds a Gateway connection per shard.
+     * Client identities always have a single shard.
+     * @see ShardManager
+     *
+     * @return The shard manager.
+     */
+    ShardManager getShardManager();
+
     /**
      * Get the ping, or heart beat time in milliseconds for the gateway connection with Discord server.
      *
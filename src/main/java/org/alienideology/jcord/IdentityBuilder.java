@@ -3,12 +3,20 @@ package org.alienideology.jcord;
 import com.neovisionaries.ws.client.WebSocketFactory;
 import org.alienideology.jcord.event.EventManager;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
+import org.alienideology.jcord.internal.gateway.DispatchFilter;
+import org.alienideology.jcord.internal.gateway.GatewayRecorder;
+import org.alienideology.jcord.internal.gateway.SessionStore;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.rest.ErrorResponse;
+import org.alienideology.jcord.internal.rest.HttpTransport;
+import org.alienideology.jcord.internal.rest.PooledHttpTransport;
+import org.alienideology.jcord.internal.rest.ResponseCache;
+import org.alienideology.jcord.internal.rest.RetryPolicy;
 import org.alienideology.jcord.util.log.Logger;
 
 import java.net.ConnectException;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
@@ -27,6 +35,18 @@ public final class IdentityBuilder {
     private EventManager manager;
     private Logger logger = new Logger("Identity");
 
+    private HttpTransport transport;
+    private String apiUrl;
+    private ResponseCache responseCache;
+    private RetryPolicy retryPolicy;
+    private int requestPoolSize = 4;
+    private int requestQueueSize = 1000;
+    private boolean transportCompression = true;
+    private DispatchFilter dispatchFilter;
+    private int shardCount = 0;
+    private SessionStore sessionStore;
+    private GatewayRecorder recorder;
+
     /**
      * Default Constructor
      */
@@ -81,7 +101,18 @@ public final class IdentityBuilder {
      */
     public Identity build (boolean async) throws ErrorResponseException, URISyntaxException, ConnectException {
         IdentityImpl id = new IdentityImpl(type, token, new WebSocketFactory(), logger);
-        id.setEventManager(manager == null ? new EventManager() : manager).login();
+        id.getShardManager().setRecorder(recorder);
+        id.setEventManager(manager == null ? new EventManager() : manager)
+                .setTransport(transport)
+                .setApiUrl(apiUrl)
+                .setResponseCache(responseCache)
+                .setRetryPolicy(retryPolicy == null ? new RetryPolicy() : retryPolicy)
+                .setRequestPool(requestPoolSize, requestQueueSize)
+                .setTransportCompression(transportCompression)
+                .setDispatchFilter(dispatchFilter)
+                .setShardCount(shardCount)
+                .setSessionStore(sessionStore)
+                .login();
         if (!async) {
             while (!(id).CONNECTION.isReady()) {
                 try {
@@ -128,6 +159,151 @@ public final class IdentityBuilder {
         return this;
     }
 
+    /**
+     * Set the http transport of this identity, which sends all rest requests.
+     * By default, each identity has its own {@link PooledHttpTransport}.
+     *
+     * @param transport The transport.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setHttpTransport(HttpTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Set the base url of the rest api, to connect to another server instead of Discord,
+     * such as a {@link org.alienideology.jcord.util.fake.FakeDiscordServer}.
+     * The Gateway url is requested from the rest api, so the identity also connects to that server's Gateway.
+     * By default, requests are sent to {@link org.alienideology.jcord.internal.rest.HttpPath#DISCORD_API_URL}.
+     * The url of each request is rewritten before it reaches the transport, so any transport can be redirected,
+     * and a transport shared with other identities keeps sending their requests to Discord.
+     *
+     * @param apiUrl The base url, for example {@code http://127.0.0.1:8080/api/v6}, or null to use Discord.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+        return this;
+    }
+
+    /**
+     * Set the cache of rest responses, such as guilds, channels and webhooks requested by id.
+     * By default, responses are not cached.
+     *
+     * @see ResponseCache
+     * @param cache The response cache, or null to disable caching.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setResponseCache(ResponseCache cache) {
+        this.responseCache = cache;
+        return this;
+    }
+
+    /**
+     * Set the policy to retry rest requests that fail without a response or with a server error.
+     * By default, idempotent requests are retried up to 3 times, see {@link RetryPolicy#RetryPolicy()}.
+     *
+     * @param policy The retry policy, or {@link RetryPolicy#never()} to never retry.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setRetryPolicy(RetryPolicy policy) {
+        this.retryPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Set the size of the thread pool used to perform asynchronous rest actions.
+     * By default, 4 threads perform the requests and up to 1000 requests can be waiting for a thread.
+     *
+     * @see org.alienideology.jcord.handle.rest.RestAction
+     * @param poolSize The maximum number of threads performing requests at the same time.
+     * @param queueSize The maximum number of requests waiting for a thread. Further requests are rejected.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setRequestPool(int poolSize, int queueSize) {
+        if (poolSize < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("The request pool size and queue size must be positive!");
+        }
+        this.requestPoolSize = poolSize;
+        this.requestQueueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Set the compression of the Gateway connection.
+     * By default, the whole connection is compressed as a zlib stream ({@code compress=zlib-stream}),
+     * which uses much less bandwidth than compressing large payloads only, such as guild creates.
+     *
+     * @param transportCompression True to compress the whole connection, false to only compress large payloads.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setTransportCompression(boolean transportCompression) {
+        this.transportCompression = transportCompression;
+        return this;
+    }
+
+    /**
+     * Ignore some Gateway dispatches, such as {@code PRESENCE_UPDATE} and {@code TYPING_START}.
+     * Ignored dispatches are dropped before they are parsed, so they create no objects and fire no events.
+     * The cache they would update is not maintained, for example presences are unknown when presence updates are ignored.
+     * By default, every dispatch is handled. {@code READY} and {@code RESUMED} cannot be ignored.
+     *
+     * @see DispatchFilter
+     * @param types The dispatch types to ignore, or none to handle every dispatch.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setIgnoredDispatches(String... types) {
+        this.dispatchFilter = types.length == 0 ? null : new DispatchFilter(Arrays.asList(types));
+        return this;
+    }
+
+    /**
+     * Set the number of shards of a bot, each shard is a Gateway connection receiving the events of some guilds.
+     * By default, the bot uses the number of shards recommended by Discord.
+     * The shards identify as fast as Discord allows, which is one shard every 5 seconds per {@code max_concurrency} bucket.
+     *
+     * @see org.alienideology.jcord.internal.gateway.ShardManager
+     * @param shardCount The number of shards, or 0 to use the recommended number.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setShardCount(int shardCount) {
+        if (shardCount < 0) {
+            throw new IllegalArgumentException("The shard count may not be negative! Provided count: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Set the store of the Gateway sessions, used to resume the sessions after the process restarts.
+     * The sessions are saved when the identity logs out or when the JVM shuts down,
+     * and the next build resumes them instead of identifying and loading every guild from the ready event.
+     * By default, sessions are not stored. Client identities always identify.
+     *
+     * @see SessionStore
+     * @param store The session store, or null to always identify.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setSessionStore(SessionStore store) {
+        this.sessionStore = store;
+        return this;
+    }
+
+    /**
+     * Record the frames received by the Gateway connections, to replay them later with a
+     * {@link org.alienideology.jcord.internal.gateway.GatewayReplayer}.
+     * By default, frames are not recorded.
+     *
+     * @see GatewayRecorder
+     * @param recorder The recorder, or null to not record.
+     * @return IdentityBuilder for chaining.
+     */
+    public IdentityBuilder setGatewayRecorder(GatewayRecorder recorder) {
+        this.recorder = recorder;
+        return this;
+    }
+
     /**
      * Set the logger of the identity.
      *
@@ -1,6 +1,5 @@
 package org.alienideology.jcord;
 
-import com.mashape.unirest.http.Unirest;
 import org.alienideology.jcord.util.log.Logger;
 
 /**
@@ -49,8 +48,4 @@ public final class JCord {
      */
     public final static int GUILD_MEMBERS_LARGE_THRESHOLD = 250;
 
-    static {
-        Unirest.setDefaultHeader("user-agent", USER_AGENT);
-    }
-
 }
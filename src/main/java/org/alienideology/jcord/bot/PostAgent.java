@@ -1,13 +1,15 @@
 package org.alienideology.jcord.bot;
 
-import com.mashape.unirest.http.Unirest;
+import com.mashape.unirest.http.HttpMethod;
 import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.HttpRequestWithBody;
 import com.mashape.unirest.request.body.MultipartBody;
 import org.alienideology.jcord.Identity;
 import org.alienideology.jcord.event.DispatcherAdaptor;
 import org.alienideology.jcord.event.guild.GuildCreateEvent;
 import org.alienideology.jcord.event.guild.GuildDeleteEvent;
 import org.alienideology.jcord.event.guild.GuildUnavailableEvent;
+import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.util.log.LogLevel;
 import org.alienideology.jcord.util.log.Logger;
 
@@ -223,7 +225,8 @@ public class PostAgent {
     public PostAgent post(Consumer<MultipartBody> post) {
         try {
             url = url.replaceAll(":bot:", identity.getSelf().getId());
-            MultipartBody body = Unirest.post(url)
+            // Built like the requests of Requester, since only the transport sends requests
+            MultipartBody body = new HttpRequestWithBody(HttpMethod.POST, url)
                     .header("Authorization", token)
                     .header("Content-Type", "application/json")
                     .field(server_key, identity.getGuilds().size());
@@ -246,7 +249,7 @@ public class PostAgent {
                 post.accept(body);
             }
 
-            String response = body.asString().getBody();
+            String response = ((IdentityImpl) identity).getTransport().execute(body.getHttpRequest(), String.class).getBody();
             LOG.log(LogLevel.INFO, "[RESPONSE] " + ((name == null) ? "" : "[API: " + name + "] ") + response);
         } catch (UnirestException e) {
             LOG.log(LogLevel.FETAL, e);
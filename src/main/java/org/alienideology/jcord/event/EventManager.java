@@ -3,21 +3,45 @@ package org.alienideology.jcord.event;
 import net.jodah.typetools.TypeResolver;
 import org.alienideology.jcord.Identity;
 import org.alienideology.jcord.bot.command.CommandFramework;
+import org.alienideology.jcord.event.channel.ChannelEvent;
+import org.alienideology.jcord.event.guild.GuildEvent;
+import org.alienideology.jcord.event.message.MessageBulkDeleteEvent;
+import org.alienideology.jcord.event.message.MessageEvent;
+import org.alienideology.jcord.event.user.WebhookUpdateEvent;
+import org.alienideology.jcord.handle.channel.IChannel;
+import org.alienideology.jcord.handle.channel.IGuildChannel;
+import org.alienideology.jcord.handle.guild.IGuild;
+import org.alienideology.jcord.util.log.LogLevel;
 import org.alienideology.jcord.util.log.Logger;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * EventManager - The managers of DispatcherAdaptors, EvenSubscribers and CommandFrameworks
+ *
+ * Events are built and cached on the Gateway's thread, in the order Discord sends them.
+ * The listeners are then invoked by a pool of dispatch threads, so a slow listener does not stall the Gateway.
+ * By default, a single dispatch thread invokes the listeners in order, see {@link #setDispatchPool(int, int, RejectionPolicy)}.
+ * With {@link #setDispatchLanes(int, int, RejectionPolicy)}, the events of a guild are invoked in order,
+ * while the events of different guilds are invoked in parallel.
+ *
  * @author AlienIdeology
  */
 public class EventManager {
@@ -26,12 +50,89 @@ public class EventManager {
 
     private Identity identity;
 
-    private List<DispatcherAdaptor> dispatchers = new ArrayList<>();
+    private List<DispatcherAdaptor> dispatchers = new CopyOnWriteArrayList<>();
 
-    private List<Object> subscribers = new ArrayList<>();
+    private List<Object> subscribers = new CopyOnWriteArrayList<>();
     private ConcurrentHashMap<Method, MethodContainer> methods = new ConcurrentHashMap<>();
 
-    private List<CommandFramework> frameworks = new ArrayList<>();
+    private List<CommandFramework> frameworks = new CopyOnWriteArrayList<>();
+
+    /* One pool of threads, or one single threaded lane per index */
+    private ThreadPoolExecutor[] dispatchPools = new ThreadPoolExecutor[0];
+    private boolean laned = false;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Default Constructor
+     * A single dispatch thread invokes the listeners, with up to 10000 events waiting for it.
+     */
+    public EventManager() {
+        setDispatchPool(1, 10000, RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * Set the pool of threads that invoke the listeners.
+     * With more than one thread, the listeners of different events can be invoked out of order.
+     *
+     * @param threads The number of dispatch threads, or 0 to invoke the listeners on the Gateway's thread.
+     * @param queueSize The maximum number of events waiting for a dispatch thread.
+     * @param policy The policy applied to events fired while the queue is full.
+     * @return EventManager for chaining.
+     */
+    public EventManager setDispatchPool(int threads, int queueSize, RejectionPolicy policy) {
+        if (threads < 0 || queueSize < 1) {
+            throw new IllegalArgumentException("The dispatch pool size may not be negative and the queue size must be positive!");
+        }
+        AtomicInteger count = new AtomicInteger();
+        setDispatchPools(threads == 0 ? new ThreadPoolExecutor[0]
+                : new ThreadPoolExecutor[]{createPool(threads, queueSize, policy, () -> "EventDispatcher-" + count.incrementAndGet())}, false);
+        return this;
+    }
+
+    /**
+     * Set the lanes that invoke the listeners.
+     * Each lane is a dispatch thread with its own queue. The events of a guild always go to the same lane,
+     * so they are invoked in order, such as a member join followed by the member's role update.
+     * The events of a private channel or group are ordered by channel, and other events, such as user updates, go to the first lane.
+     *
+     * @param lanes The number of lanes, which is the number of dispatch threads.
+     * @param queueSize The maximum number of events waiting in each lane.
+     * @param policy The policy applied to events fired while the queue of their lane is full.
+     * @return EventManager for chaining.
+     */
+    public EventManager setDispatchLanes(int lanes, int queueSize, RejectionPolicy policy) {
+        if (lanes < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("The number of lanes and the queue size must be positive!");
+        }
+        ThreadPoolExecutor[] pools = new ThreadPoolExecutor[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String name = "EventLane-" + i;
+            pools[i] = createPool(1, queueSize, policy, () -> name);
+        }
+        setDispatchPools(pools, true);
+        return this;
+    }
+
+    private ThreadPoolExecutor createPool(int threads, int queueSize, RejectionPolicy policy, Supplier<String> name) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, name.get());
+                    thread.setDaemon(true);
+                    return thread;
+                }, policy.toHandler(this));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private void setDispatchPools(ThreadPoolExecutor[] pools, boolean laned) {
+        ThreadPoolExecutor[] previous = dispatchPools;
+        this.laned = laned;
+        this.dispatchPools = pools;
+        for (ThreadPoolExecutor pool : previous) {
+            pool.shutdown();
+        }
+    }
 
     /**
      * Register objects that extend DispatcherAdaptor, used to perform actions when a event is fired.
@@ -143,6 +244,48 @@ public class EventManager {
                 (object instanceof CommandFramework && frameworks.contains(object));
     }
 
+    /**
+     * @return The number of events waiting for a dispatch thread.
+     */
+    public int getDispatchQueueSize() {
+        int size = 0;
+        for (ThreadPoolExecutor pool : dispatchPools) {
+            size += pool.getQueue().size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the backlog of each lane, when the listeners are invoked by lanes.
+     * @see #setDispatchLanes(int, int, RejectionPolicy)
+     *
+     * @return The number of events waiting in each lane, or an empty array if events are not dispatched by lanes.
+     */
+    public int[] getLaneQueueSizes() {
+        ThreadPoolExecutor[] pools = dispatchPools;
+        if (!laned) return new int[0];
+
+        int[] sizes = new int[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            sizes[i] = pools[i].getQueue().size();
+        }
+        return sizes;
+    }
+
+    /**
+     * @return The number of events dispatched to the listeners.
+     */
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    /**
+     * @return The number of events discarded because the dispatch queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
     /**
      * Get the logger of this event manager, This is the same logger used to log any event messages.
      *
@@ -343,8 +486,60 @@ public class EventManager {
         thread.run();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Dispatch an event to the listeners in the dispatch pool.
+     *
+     * @param event The event.
+     */
     public void dispatchEvent(Event event) {
+        ThreadPoolExecutor[] pools = dispatchPools;
+        if (pools.length == 0) {
+            fireEvent(event);
+        } else if (pools.length == 1) {
+            pools[0].execute(new Dispatch(event));
+        } else {
+            String key = getLaneKey(event);
+            int lane = key == null ? 0 : Math.floorMod(key.hashCode(), pools.length);
+            pools[lane].execute(new Dispatch(event));
+        }
+    }
+
+    /**
+     * Get the key of the lane invoking the listeners of an event.
+     *
+     * @param event The event.
+     * @return The id of the guild of the event, the id of the channel if the event is not in a guild, or null.
+     */
+    private static String getLaneKey(Event event) {
+        if (event instanceof GuildEvent) {
+            return getLaneKey(((GuildEvent) event).getGuild());
+        } else if (event instanceof WebhookUpdateEvent) {
+            return getLaneKey(((WebhookUpdateEvent) event).getGuild());
+        } else if (event instanceof MessageEvent) {
+            return getLaneKey(((MessageEvent) event).getChannel());
+        } else if (event instanceof MessageBulkDeleteEvent) {
+            return getLaneKey(((MessageBulkDeleteEvent) event).getChannel());
+        } else if (event instanceof ChannelEvent) {
+            return getLaneKey(((ChannelEvent) event).getChannel());
+        }
+        return null;
+    }
+
+    private static String getLaneKey(IChannel channel) {
+        if (channel instanceof IGuildChannel) {
+            return getLaneKey(((IGuildChannel) channel).getGuild());
+        }
+        return channel == null ? null : channel.getId();
+    }
+
+    private static String getLaneKey(IGuild guild) {
+        return guild == null ? null : guild.getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fireEvent(Event event) {
+        dispatched.increment();
+
         /* Dispatcher Adaptors */
         // This includes the command frameworks
         dispatchers.forEach(d -> d.dispatchEvent(event));
@@ -355,12 +550,13 @@ public class EventManager {
 
         // Continue until the super class is the object class
         while (eventClass.getSuperclass() != null) {
-            for (Method method : methods.keySet()) {
-                MethodContainer oc = methods.get(method);
+            // Iterate the entries, a listener removed while dispatching is no longer in the map
+            for (Map.Entry<Method, MethodContainer> entry : methods.entrySet()) {
+                MethodContainer oc = entry.getValue();
 
                 if (oc.event.isAssignableFrom(eventClass)) {
                     try {
-                        method.invoke(oc.object, event);
+                        entry.getKey().invoke(oc.object, event);
                     } catch (IllegalAccessException | InvocationTargetException e) {
                         e.printStackTrace();
                     }
@@ -371,6 +567,67 @@ public class EventManager {
 
     }
 
+    /**
+     * The policy applied to events fired while the dispatch queue is full.
+     */
+    public enum RejectionPolicy {
+        /**
+         * Invoke the listeners on the Gateway's thread, which slows the Gateway down until the queue drains.
+         */
+        CALLER_RUNS,
+        /**
+         * Discard the event.
+         */
+        DISCARD,
+        /**
+         * Discard the oldest event waiting in the queue, and queue the event.
+         */
+        DISCARD_OLDEST;
+
+        private RejectedExecutionHandler toHandler(EventManager manager) {
+            switch (this) {
+                case CALLER_RUNS:
+                    return new ThreadPoolExecutor.CallerRunsPolicy();
+                case DISCARD:
+                    return (runnable, pool) -> manager.reject(runnable);
+                default:
+                    return (runnable, pool) -> {
+                        if (pool.isShutdown()) return;
+                        Runnable oldest = pool.getQueue().poll();
+                        if (oldest != null) manager.reject(oldest);
+                        pool.execute(runnable);
+                    };
+            }
+        }
+    }
+
+    private void reject(Runnable runnable) {
+        rejected.increment();
+        if (logger != null && runnable instanceof Dispatch) {
+            logger.log(LogLevel.WARN, "The dispatch queue is full, discarded " + ((Dispatch) runnable).event.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * A queued dispatch of an event
+     */
+    private class Dispatch implements Runnable {
+        private final Event event;
+
+        Dispatch(Event event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            try {
+                fireEvent(event);
+            } catch (RuntimeException ex) {
+                logger.log(LogLevel.ERROR, "Exception thrown by a listener of " + event.getClass().getSimpleName(), ex);
+            }
+        }
+    }
+
     /**
      * A container for Event Subscriber methods
      */
@@ -24,6 +24,7 @@ public class ChannelDeleteEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        invalidateCache(json.getString("id"));
         Channel channel = (Channel) identity.getChannel(json.getString("id"));
         OffsetDateTime timeStamp = OffsetDateTime.now();
 
@@ -36,6 +36,7 @@ public class ChannelUpdateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        invalidateCache(json.getString("id"));
         IChannel.Type type = IChannel.Type.getByKey(json.getInt("type"));
 
         if (type.equals(IChannel.Type.GROUP_DM)) {
@@ -3,6 +3,8 @@ package org.alienideology.jcord.event.handler;
 import org.alienideology.jcord.event.Event;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.ObjectBuilder;
+import org.alienideology.jcord.internal.rest.HttpPath;
+import org.alienideology.jcord.internal.rest.ResponseCache;
 import org.alienideology.jcord.util.log.Logger;
 import org.json.JSONObject;
 
@@ -40,6 +42,32 @@ public abstract class EventHandler {
         identity.getEventManager().dispatchEvent(event);
     }
 
+    /**
+     * Invalidate the cached rest responses of an entity updated by an event.
+     *
+     * @param id The id of the entity.
+     */
+    protected void invalidateCache(String id) {
+        ResponseCache cache = identity.getResponseCache();
+        if (cache != null) cache.invalidate(id);
+    }
+
+    /**
+     * Invalidate the cached rest responses of a route.
+     *
+     * @param path The route.
+     * @param id The id of the entity, or null to invalidate every response of this route.
+     */
+    protected void invalidateCache(HttpPath path, String id) {
+        ResponseCache cache = identity.getResponseCache();
+        if (cache == null) return;
+        if (id == null) {
+            cache.invalidate(path);
+        } else {
+            cache.invalidate(path, id);
+        }
+    }
+
     /**
      * Process and dispatch events base on the provided json.
      *
@@ -6,6 +6,7 @@ import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.guild.Guild;
 import org.alienideology.jcord.internal.object.guild.Member;
 import org.alienideology.jcord.internal.object.user.User;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.json.JSONObject;
 
 /**
@@ -22,6 +23,7 @@ public class GuildBanEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        invalidateCache(HttpPath.Guild.GET_GUILD_BANS, json.getString("guild_id"));
         Guild guild = (Guild) identity.getGuild(json.getString("guild_id"));
 
         if (isBanned) {
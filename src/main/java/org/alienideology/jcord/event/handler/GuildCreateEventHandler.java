@@ -22,7 +22,8 @@ public class GuildCreateEventHandler extends EventHandler {
 
         Guild guild = (Guild) identity.getGuild(json.getString("id"));
 
-        if (json.has("presences")) {
+        // The presences would never be updated
+        if (json.has("presences") && !identity.isIgnoring("PRESENCE_UPDATE")) {
             JSONArray presences = json.getJSONArray("presences");
 
             for (int i = 0; i < presences.length(); i++) {
@@ -40,7 +41,7 @@ public class GuildCreateEventHandler extends EventHandler {
         // Request guild members after the guild is built
         long memberCount = json.getLong("member_count");
         if (memberCount > JCord.GUILD_MEMBERS_LARGE_THRESHOLD) { // Need to request guild members
-            identity.getGateway().sendRequestMembers(json.getString("id"));
+            identity.getShardManager().getShardFor(json.getString("id")).sendRequestMembers(json.getString("id"));
         }
 
     }
@@ -21,6 +21,7 @@ public class GuildDeleteEventHandler extends EventHandler {
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
         String id = json.getString("id");
+        invalidateCache(id);
         boolean unavailable = json.has("unavailable") && json.getBoolean("unavailable");
 
         Guild guild = (Guild) identity.getGuild(id);
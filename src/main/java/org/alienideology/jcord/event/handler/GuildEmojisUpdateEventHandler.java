@@ -11,6 +11,7 @@ import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.guild.Guild;
 import org.alienideology.jcord.internal.object.guild.GuildEmoji;
 import org.alienideology.jcord.internal.object.guild.Role;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.alienideology.jcord.util.log.LogLevel;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -31,6 +32,8 @@ public class GuildEmojisUpdateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        // The guild route includes the roles and emojis
+        invalidateCache(HttpPath.Guild.GET_GUILD, json.getString("guild_id"));
         Guild guild = (Guild) identity.getGuild(json.getString("guild_id"));
 
         if (guild == null) {
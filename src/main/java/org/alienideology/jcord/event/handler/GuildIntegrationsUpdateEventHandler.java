@@ -3,6 +3,7 @@ package org.alienideology.jcord.event.handler;
 import org.alienideology.jcord.event.guild.update.GuildIntegrationsUpdateEvent;
 import org.alienideology.jcord.handle.guild.IGuild;
 import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.alienideology.jcord.util.log.LogLevel;
 import org.json.JSONObject;
 
@@ -17,6 +18,7 @@ public class GuildIntegrationsUpdateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        invalidateCache(HttpPath.Guild.GET_GUILD_INTEGRATIONS, json.getString("guild_id"));
         IGuild guild = identity.getGuild(json.getString("guild_id"));
         if (guild == null) {
             logger.log(LogLevel.FETAL, "[UNKNOWN GUILD] [GUILD_INTEGRATIONS_UPDATE_EVENT] ID: " + json.getString("guild_id"));
@@ -4,6 +4,7 @@ import org.alienideology.jcord.event.guild.role.GuildRoleCreateEvent;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.guild.Guild;
 import org.alienideology.jcord.internal.object.guild.Role;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.json.JSONObject;
 
 /**
@@ -17,6 +18,9 @@ public class GuildRoleCreateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        // The guild route includes the roles and emojis
+        invalidateCache(HttpPath.Guild.GET_GUILD, json.getString("guild_id"));
+        invalidateCache(HttpPath.Guild.GET_GUILD_ROLES, json.getString("guild_id"));
         Guild guild = (Guild) identity.getGuild(json.getString("guild_id"));
         Role role = builder.buildRole(json.getJSONObject("role"), guild);
         guild.addRole(role);
@@ -5,6 +5,7 @@ import org.alienideology.jcord.handle.permission.Permission;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.guild.Guild;
 import org.alienideology.jcord.internal.object.guild.Role;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.alienideology.jcord.util.log.LogLevel;
 import org.json.JSONObject;
 
@@ -24,6 +25,9 @@ public class GuildRoleUpdateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        // The guild route includes the roles and emojis
+        invalidateCache(HttpPath.Guild.GET_GUILD, json.getString("guild_id"));
+        invalidateCache(HttpPath.Guild.GET_GUILD_ROLES, json.getString("guild_id"));
         try {
             Guild guild = (Guild) identity.getGuild(json.getString("guild_id"));
             JSONObject roleJson = json.getJSONObject("role");
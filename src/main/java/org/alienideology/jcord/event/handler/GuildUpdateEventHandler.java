@@ -25,6 +25,7 @@ public class GuildUpdateEventHandler extends EventHandler {
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
         String id = json.getString("id");
+        invalidateCache(id);
         Guild guild = (Guild) identity.getGuild(id);
 
         if (guild == null) {
@@ -2,6 +2,7 @@ package org.alienideology.jcord.event.handler;
 
 import org.alienideology.jcord.Identity;
 import org.alienideology.jcord.IdentityType;
+import org.alienideology.jcord.JCord;
 import org.alienideology.jcord.event.gateway.ReadyEvent;
 import org.alienideology.jcord.internal.gateway.GatewayAdaptor;
 import org.alienideology.jcord.internal.object.IdentityImpl;
@@ -40,9 +41,16 @@ public class ReadyEventHandler extends EventHandler {
             for (int i = 0; i < guilds.length(); i++) {
                 JSONObject guild = guilds.getJSONObject(i);
                 if (guild.has("unavailable") && guild.getBoolean("unavailable")) {
+                    // The guild create of an unavailable guild requests its members
                     guild = new Requester(identity, HttpPath.Guild.GET_GUILD).request(guild.getString("id")).getAsJSONObject();
+                    builder.buildGuild(guild); // Guild added to identity automatically
+                } else {
+                    // Clients receive their guilds in the ready event, and no guild create follows
+                    builder.buildGuild(guild);
+                    if (guild.optBoolean("large", false) || guild.optLong("member_count", 0) > JCord.GUILD_MEMBERS_LARGE_THRESHOLD) {
+                        gateway.sendRequestMembers(guild.getString("id"));
+                    }
                 }
-                builder.buildGuild(guild); // Guild added to identity automatically
             }
             identity.LOG.log(LogLevel.DEBUG, "[READY] Guilds: " + guilds.length());
 
@@ -114,7 +122,7 @@ public class ReadyEventHandler extends EventHandler {
 
             dispatchEvent(new ReadyEvent(identity, gateway, sequence, session_id));
 
-            identity.CONNECTION = Identity.Connection.READY;
+            gateway.setConnection(Identity.Connection.READY);
         } catch (Exception ex) {
             ex.printStackTrace();
         }
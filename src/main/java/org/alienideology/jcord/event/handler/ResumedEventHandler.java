@@ -21,10 +21,10 @@ public class ResumedEventHandler extends EventHandler {
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
 
-        identity.CONNECTION = Identity.Connection.RESUMING;
+        gateway.setConnection(Identity.Connection.RESUMING);
 
         dispatchEvent(new ResumedEvent(identity, gateway, sequence));
 
-        identity.CONNECTION = Identity.Connection.READY;
+        gateway.setConnection(Identity.Connection.READY);
     }
 }
@@ -4,6 +4,7 @@ import org.alienideology.jcord.event.user.WebhookUpdateEvent;
 import org.alienideology.jcord.handle.channel.ITextChannel;
 import org.alienideology.jcord.handle.guild.IGuild;
 import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.rest.HttpPath;
 import org.json.JSONObject;
 
 /**
@@ -17,6 +18,8 @@ public class WebhookUpdateEventHandler extends EventHandler {
 
     @Override
     public void dispatchEvent(JSONObject json, int sequence) {
+        invalidateCache(HttpPath.Webhook.GET_CHANNEL_WEBHOOKS, json.getString("channel_id"));
+        invalidateCache(HttpPath.Webhook.GET_WEBHOOK, null);
         IGuild guild = identity.getGuild(json.getString("guild_id"));
         ITextChannel channel = identity.getTextChannel(json.getString("channel_id"));
         dispatchEvent(new WebhookUpdateEvent(identity, sequence, guild, channel));
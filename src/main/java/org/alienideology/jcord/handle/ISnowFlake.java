@@ -1,5 +1,7 @@
 package org.alienideology.jcord.handle;
 
+import org.alienideology.jcord.util.DataUtils;
+
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
@@ -32,12 +34,7 @@ public interface ISnowFlake {
      * @return The created time.
      */
     default OffsetDateTime getCreatedTime() {
-        long id = Long.parseLong(getId());
-        // Get the first 22 digits
-        id = id >> 22;
-        // Add Discord Epoch time, which is the first second of 2015
-        id += 1420070400000L;
-        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(id), ZoneId.systemDefault());
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(DataUtils.getSnowflakeTime(getId())), ZoneId.systemDefault());
     }
 
 }
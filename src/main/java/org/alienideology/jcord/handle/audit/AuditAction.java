@@ -1,10 +1,14 @@
 package org.alienideology.jcord.handle.audit;
 
+import org.alienideology.jcord.handle.rest.RequestPriority;
+import org.alienideology.jcord.handle.rest.RestAction;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.rest.HttpPath;
 import org.alienideology.jcord.internal.rest.Requester;
 import org.alienideology.jcord.util.DataUtils;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * AuditAction - An action that can be performed with a audit log reason.
  *
@@ -16,13 +20,15 @@ import org.alienideology.jcord.util.DataUtils;
  * Invoking {@link #withReason(String)} will cause the action be performed with an audit log reason,
  * while invoking {@link #withoutReason()} will cause the action be performed without any audit log reason.
  *
+ * An audit action can also be performed asynchronously, see {@link RestAction}.
+ * Use {@link #setReason(String)} to set the audit log reason before queueing the action.
+ *
  * @author AlienIdeology
  * @param <T> The type of return value for this action.
  */
-public abstract class AuditAction<T> {
+public abstract class AuditAction<T> extends RestAction<T> {
 
-    private final Requester requester;
-    private String[] params;
+    private String reason;
 
     /**
      * The constructor for an audit action.
@@ -34,25 +40,36 @@ public abstract class AuditAction<T> {
      * @param params The parameters to complete the path.
      */
     public AuditAction(IdentityImpl identity, HttpPath path, String... params) {
-        requester = new Requester(identity, path);
-        this.params = params;
+        super(identity, path, params);
+    }
+
+    /**
+     * Set the audit log reason of this action, without performing it.
+     * The reason may be empty or {@code null}.
+     *
+     * @param reason The reason.
+     * @return AuditAction for chaining.
+     */
+    public AuditAction<T> setReason(String reason) {
+        this.reason = reason;
+        return this;
+    }
+
+    @Override
+    public AuditAction<T> setPriority(RequestPriority priority) {
+        super.setPriority(priority);
+        return this;
     }
 
     /**
      * Complete this action with an audit log reason.
-     * The reason can may empty or {@code null}.
+     * The reason may be empty or {@code null}.
      *
      * @param reason The reason.
      * @return The result of this action.
      */
     public T withReason(String reason) {
-        requester.request(params);
-        if (reason != null && !reason.isEmpty()) {
-            requester.updateRequest(request ->
-                    request.header("X-Audit-Log-Reason", // Add header
-                            DataUtils.encodeToUrl(reason).replace('+', ' '))); // URI Encode
-        }
-        return request(requester);
+        return setReason(reason).complete();
     }
 
     /**
@@ -65,8 +82,14 @@ public abstract class AuditAction<T> {
         return withReason(null);
     }
 
-    // Requester, used to perform request
-    protected abstract T request(Requester requester);
+    @Override
+    protected void prepare(Requester requester) {
+        if (reason != null && !reason.isEmpty()) {
+            requester.updateRequest(request ->
+                    request.header("X-Audit-Log-Reason", // Add header
+                            DataUtils.encodeToUrl(reason).replace('+', ' '))); // URI Encode
+        }
+    }
 
     /**
      * An empty audit action, as a place holder for ignored actions (because the value passed is not valid).
@@ -107,6 +130,26 @@ public abstract class AuditAction<T> {
             return request(null);
         }
 
+        /**
+         * This does not perform any action. It returns null.
+         *
+         * @return Null.
+         */
+        @Override
+        public T complete() {
+            return request(null);
+        }
+
+        /**
+         * This does not perform any action. It returns a completed future of null.
+         *
+         * @return A completed future.
+         */
+        @Override
+        public CompletableFuture<T> submit() {
+            return CompletableFuture.completedFuture(request(null));
+        }
+
         @Override
         protected T request(Requester requester) {
             return null;
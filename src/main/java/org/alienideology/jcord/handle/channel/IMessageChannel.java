@@ -9,6 +9,8 @@ import org.alienideology.jcord.handle.guild.IGuildEmoji;
 import org.alienideology.jcord.handle.guild.IMember;
 import org.alienideology.jcord.handle.message.IEmbed;
 import org.alienideology.jcord.handle.message.IMessage;
+import org.alienideology.jcord.handle.message.Upload;
+import org.alienideology.jcord.handle.rest.RestAction;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.internal.exception.PermissionException;
 import org.alienideology.jcord.internal.rest.ErrorResponse;
@@ -16,7 +18,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * MessageChannel - A channel that allows users to send message.
@@ -107,6 +112,52 @@ public interface IMessageChannel extends IChannel {
      */
     IMessage sendMessage(IEmbed embed);
 
+    /**
+     * Create an action that sends a string message, so the message can be sent asynchronously.
+     * The message is checked when the action is created, and sent when the action is performed.
+     * @see #sendMessage(String)
+     *
+     * @param message The message to be sent.
+     * @exception IllegalArgumentException
+     *          If the message is more than 2000 characters.
+     * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
+     *          The message channel is a conversation between two bots.
+     * @exception PermissionException
+     *          If the user lack Send Messages permission
+     * @return A {@link RestAction} that returns the message sent.
+     */
+    RestAction<IMessage> createMessage(String message);
+
+    /**
+     * Create an action that sends a message built by MessageBuilder, so the message can be sent asynchronously.
+     * @see #sendMessage(IMessage)
+     *
+     * @param message The IMessage built by {@link MessageBuilder}.
+     * @exception IllegalArgumentException
+     *          If the message is more than 2000 characters.
+     * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
+     *          The message channel is a conversation between two bots.
+     * @exception PermissionException
+     *          If the user lack Send Messages permission
+     * @return A {@link RestAction} that returns the message sent.
+     */
+    RestAction<IMessage> createMessage(IMessage message);
+
+    /**
+     * Create an action that sends an embed message, so the message can be sent asynchronously.
+     * @see #sendMessage(IEmbed)
+     *
+     * @param embed The Embed built by {@link EmbedBuilder}.
+     * @exception IllegalArgumentException
+     *          If the message is more than 2000 characters.
+     * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
+     *          The message channel is a conversation between two bots.
+     * @exception PermissionException
+     *          If the user lack Send Messages permission
+     * @return A {@link RestAction} that returns the message sent.
+     */
+    RestAction<IMessage> createMessage(IEmbed embed);
+
     /**
      * Send an attachment with the string message.
      *
@@ -116,7 +167,7 @@ public interface IMessageChannel extends IChannel {
      *              <li>If the identity does not have {@code Add Attachments} permission.</li>
      *          </ul>
      * @exception IllegalArgumentException
-     *          If the file is greater than {@code 8 MB}, which is the size limit of an attachment.
+     *          If the file is greater than {@link Upload#MAX_SIZE}, which is the size limit of a message.
      * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
      *          The message channel is a conversation between two bots.
      *
@@ -141,7 +192,7 @@ public interface IMessageChannel extends IChannel {
      *              <li>If the identity does not have {@code Add Attachments} permission.</li>
      *          </ul>
      * @exception IllegalArgumentException
-     *          If the file is greater than {@code 8 MB}, which is the size limit of an attachment.
+     *          If the file is greater than {@link Upload#MAX_SIZE}, which is the size limit of a message.
      * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
      *          The message channel is a conversation between two bots.
      *
@@ -167,7 +218,7 @@ public interface IMessageChannel extends IChannel {
      *              <li>If the identity does not have {@code Add Attachments} permission.</li>
      *          </ul>
      * @exception IllegalArgumentException
-     *          If the file is greater than {@code 8 MB}, which is the size limit of an attachment.
+     *          If the file is greater than {@link Upload#MAX_SIZE}, which is the size limit of a message.
      * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
      *          The message channel is a conversation between two bots.
      *
@@ -183,6 +234,62 @@ public interface IMessageChannel extends IChannel {
      */
     IMessage sendAttachment(File file, IMessage message) throws IOException;
 
+    /**
+     * Send several attachments with the string message.
+     * The attachments are streamed from their sources while the message is sent.
+     *
+     * @exception PermissionException
+     *          <ul>
+     *              <li>If the identity does not have {@code Send Messages} permission.</li>
+     *              <li>If the identity does not have {@code Add Attachments} permission.</li>
+     *          </ul>
+     * @exception IllegalArgumentException
+     *          <ul>
+     *              <li>If there is no upload.</li>
+     *              <li>If the uploads are greater than {@link Upload#MAX_SIZE} in total, which is the size limit of a message.</li>
+     *          </ul>
+     * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
+     *          The message channel is a conversation between two bots.
+     *
+     * @param message The message.
+     * @param uploads The attachments, see {@link Upload}.
+     * @return The message sent.
+     * @throws IOException
+     *          <ul>
+     *              <li>If a file is not found, a directory, or not readable.</li>
+     *              <li>If an upload of unknown size exceeds the size limit while it is sent.</li>
+     *          </ul>
+     */
+    IMessage sendAttachments(String message, Upload... uploads) throws IOException;
+
+    /**
+     * Send several attachments with a message built by {@link MessageBuilder}.
+     * The attachments are streamed from their sources while the message is sent.
+     *
+     * @exception PermissionException
+     *          <ul>
+     *              <li>If the identity does not have {@code Send Messages} permission.</li>
+     *              <li>If the identity does not have {@code Add Attachments} permission.</li>
+     *          </ul>
+     * @exception IllegalArgumentException
+     *          <ul>
+     *              <li>If there is no upload.</li>
+     *              <li>If the uploads are greater than {@link Upload#MAX_SIZE} in total, which is the size limit of a message.</li>
+     *          </ul>
+     * @exception org.alienideology.jcord.internal.exception.ErrorResponseException
+     *          The message channel is a conversation between two bots.
+     *
+     * @param message The message built by {@link MessageBuilder}.
+     * @param uploads The attachments, see {@link Upload}.
+     * @return The message sent.
+     * @throws IOException
+     *          <ul>
+     *              <li>If a file is not found, a directory, or not readable.</li>
+     *              <li>If an upload of unknown size exceeds the size limit while it is sent.</li>
+     *          </ul>
+     */
+    IMessage sendAttachments(IMessage message, Upload... uploads) throws IOException;
+
     /**
      * Edit a string message by ID
      *
@@ -220,8 +327,19 @@ public interface IMessageChannel extends IChannel {
      */
     IMessage editMessage(String messageId, IEmbed message);
 
+    /**
+     * Edit a message by ID, without checking the author and permissions locally.
+     * The message is not requested before it is edited, if the identity cannot edit it, Discord rejects the request.
+     *
+     * @param messageId The message ID
+     * @param message The IMessage built by {@link MessageBuilder}.
+     * @return The message edited
+     */
+    IMessage editMessageUnchecked(String messageId, IMessage message);
+
     /**
      * Delete a message by ID.
+     * The message is only requested to check its author if it is not in the message history cache.
      *
      * @param messageId The Id of the message.
      *
@@ -230,12 +348,13 @@ public interface IMessageChannel extends IChannel {
      * @exception IllegalArgumentException
      *          If this channel is a PrivateChannel and the message is from another user.
      *
-     * @return A {@link Void} {@link AuditAction}, used to attach audit log reason.
+     * @return A {@link AuditAction}, used to attach audit log reason. The action returns the deleted message.
      */
      AuditAction<IMessage> deleteMessage(String messageId);
 
     /**
      * Delete a message.
+     * The permissions are checked by the message's author, without requesting the message.
      *
      * @exception PermissionException
      *          If the identity lack {@code Manager Messages} permission.
@@ -243,10 +362,21 @@ public interface IMessageChannel extends IChannel {
      *          If this channel is a PrivateChannel and the message is from another user.
      *
      * @param message The the message.
-     * @return A {@link Void} {@link AuditAction}, used to attach audit log reason.
+     * @return A {@link AuditAction}, used to attach audit log reason. The action returns the deleted message.
      */
     AuditAction<IMessage> deleteMessage(IMessage message);
 
+    /**
+     * Delete a message by ID, without checking the author and permissions locally.
+     * The message is never requested, if the identity cannot delete it, Discord rejects the request.
+     * This is useful for deleting messages at a high rate, such as auto moderation.
+     *
+     * @param messageId The Id of the message.
+     * @return A {@link AuditAction}, used to attach audit log reason.
+     *          The action returns the deleted message if it is cached, or null otherwise.
+     */
+    AuditAction<IMessage> deleteMessageUnchecked(String messageId);
+
     /**
      * Build delete a collection of messages.
      *
@@ -268,6 +398,38 @@ public interface IMessageChannel extends IChannel {
      */
     void bulkDeleteMessages(boolean throwEx, List<IMessage> messages);
 
+    /**
+     * Purge any number of messages asynchronously.
+     * Messages younger than two weeks are bulk deleted in batches of up to 100 messages,
+     * older messages are deleted one by one. Purges of different channels run in parallel, up to four at once.
+     *
+     * @exception IllegalArgumentException
+     *          If this channel is a private channel.
+     * @exception PermissionException
+     *          If the identity does not have {@code Manage Messages} permission.
+     *
+     * @param messageIds The ids of the messages to delete.
+     * @param progress The consumer of the progress, invoked after every request. May be {@code null}.
+     * @return The future of the final progress. Messages that fail to delete are counted by {@link PurgeProgress#getFailed()}.
+     */
+    CompletableFuture<PurgeProgress> purgeMessages(Collection<String> messageIds, @Nullable Consumer<PurgeProgress> progress);
+
+    /**
+     * Purge the messages between two messages asynchronously, the two messages are not deleted.
+     * The history is fetched and deleted page by page, see {@link #purgeMessages(Collection, Consumer)}.
+     *
+     * @exception IllegalArgumentException
+     *          If this channel is a private channel.
+     * @exception PermissionException
+     *          If the identity does not have {@code Manage Messages} or {@code Read Message History} permission.
+     *
+     * @param afterId The id of the oldest message to keep, or {@code null} to purge from the beginning of the history.
+     * @param beforeId The id of the newest message to keep, or {@code null} to purge to the latest message.
+     * @param progress The consumer of the progress, invoked after every request. May be {@code null}.
+     * @return The future of the final progress.
+     */
+    CompletableFuture<PurgeProgress> purgeMessages(@Nullable String afterId, @Nullable String beforeId, @Nullable Consumer<PurgeProgress> progress);
+
     /**
      * Pin a message by ID.
      *
@@ -0,0 +1,74 @@
+package org.alienideology.jcord.handle.channel;
+
+/**
+ * PurgeProgress - The progress of purging messages in a channel.
+ *
+ * @see IMessageChannel#purgeMessages(java.util.Collection, java.util.function.Consumer)
+ * @author AlienIdeology
+ */
+public final class PurgeProgress {
+
+    private final IMessageChannel channel;
+    private final int total;
+    private final int deleted;
+    private final int failed;
+    private final boolean done;
+
+    public PurgeProgress(IMessageChannel channel, int total, int deleted, int failed, boolean done) {
+        this.channel = channel;
+        this.total = total;
+        this.deleted = deleted;
+        this.failed = failed;
+        this.done = done;
+    }
+
+    /**
+     * @return The channel the messages are purged from.
+     */
+    public IMessageChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Get the number of messages to purge.
+     * When purging a range of the history, this only counts the messages fetched so far.
+     *
+     * @return The number of messages.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The number of messages deleted.
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return The number of messages that failed to delete, such as unknown messages.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return True if the purge is finished.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return "PurgeProgress{" +
+                "channel=" + channel +
+                ", total=" + total +
+                ", deleted=" + deleted +
+                ", failed=" + failed +
+                ", done=" + done +
+                '}';
+    }
+
+}
@@ -14,6 +14,8 @@ import java.util.Collection;
 
 /**
  * IClientManager - A manager used to manage the Discord client.
+ * The requests of this manager are performed on the calling thread,
+ * call them outside of event listeners or wrap them in an executor of your own.
  *
  * @author AlienIdeology
  */
@@ -131,11 +131,11 @@ public interface IMessage extends IDiscordObject, ISnowFlake, Comparable<IMessag
     /**
      * Delete this message
      *
-     * @see IMessageChannel#deleteMessage(String)
+     * @see IMessageChannel#deleteMessage(IMessage)
      * @return A {@link Void} {@link AuditAction}, used to attach audit log reason.
      */
     default AuditAction<IMessage> delete() {
-        return getChannel().deleteMessage(getId());
+        return getChannel().deleteMessage(this);
     }
 
     /**
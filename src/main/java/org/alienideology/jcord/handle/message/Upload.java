@@ -0,0 +1,145 @@
+package org.alienideology.jcord.handle.message;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Upload - A file to be sent as an attachment of a message.
+ *
+ * The content of an upload is streamed to Discord when the message is sent, it is never copied into memory.
+ * The total size of the uploads of a message is limited to {@link #MAX_SIZE}.
+ *
+ * @author AlienIdeology
+ */
+public final class Upload {
+
+    /**
+     * The size limit of the attachments of a message, which is 8 MiB.
+     */
+    public static final long MAX_SIZE = 8 * 1024 * 1024;
+
+    private final String name;
+    private final long size;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final InputStream stream;
+
+    private Upload(String name, long size, File file, ByteBuffer buffer, InputStream stream) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The name of an upload may not be null or empty!");
+        }
+        this.name = name;
+        this.size = size;
+        this.file = file;
+        this.buffer = buffer;
+        this.stream = stream;
+    }
+
+    /**
+     * Upload a file, named by the file's name.
+     *
+     * @param file The file.
+     * @return The upload.
+     */
+    public static Upload of(File file) {
+        return of(file, file.getName());
+    }
+
+    /**
+     * Upload a file.
+     * The file is read from the disk in chunks when the message is sent.
+     *
+     * @param file The file.
+     * @param name The name of the attachment, with the file extension.
+     * @return The upload.
+     */
+    public static Upload of(File file, String name) {
+        return new Upload(name, file.length(), file, null, null);
+    }
+
+    /**
+     * Upload bytes in memory.
+     *
+     * @param data The bytes.
+     * @param name The name of the attachment, with the file extension.
+     * @return The upload.
+     */
+    public static Upload of(byte[] data, String name) {
+        return of(ByteBuffer.wrap(data), name);
+    }
+
+    /**
+     * Upload the remaining bytes of a buffer.
+     * The position of the buffer is not modified.
+     *
+     * @param buffer The buffer, which can be a direct or a memory mapped buffer.
+     * @param name The name of the attachment, with the file extension.
+     * @return The upload.
+     */
+    public static Upload of(ByteBuffer buffer, String name) {
+        return new Upload(name, buffer.remaining(), null, buffer.asReadOnlyBuffer(), null);
+    }
+
+    /**
+     * Upload the content of a stream.
+     * The stream is read when the message is sent, and a stream of up to
+     * {@link org.alienideology.jcord.internal.rest.UploadBody#REPLAY_SIZE} bytes is kept, so the message can be sent again after a rate limit.
+     * The stream is not closed.
+     *
+     * @param stream The stream.
+     * @param size The number of bytes of the stream, or -1 if unknown.
+     *             A stream shorter or longer than its size fails to send.
+     *             A stream of unknown size fails to send when it exceeds the size limit.
+     * @param name The name of the attachment, with the file extension.
+     * @return The upload.
+     */
+    public static Upload of(InputStream stream, long size, String name) {
+        return new Upload(name, size, null, null, stream);
+    }
+
+    /**
+     * @return The name of the attachment.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The size in bytes, or -1 if unknown.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The file, or null if this is not a file upload.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return A read only view of the buffer, or null if this is not a buffer upload.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer == null ? null : buffer.duplicate();
+    }
+
+    /**
+     * @return The stream, or null if this is not a stream upload.
+     */
+    public InputStream getStream() {
+        return stream;
+    }
+
+    @Override
+    public String toString() {
+        return "Upload{" +
+                "name='" + name + '\'' +
+                ", size=" + size +
+                '}';
+    }
+
+}
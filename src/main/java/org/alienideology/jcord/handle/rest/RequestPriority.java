@@ -0,0 +1,38 @@
+package org.alienideology.jcord.handle.rest;
+
+/**
+ * RequestPriority - The priority of a rest request, when it waits for a rate limit bucket or the request pool.
+ *
+ * A request of lower priority is scheduled as if it was queued later, by the priority's delay.
+ * Therefore moderation requests are sent before the interactive and background requests waiting in the same bucket,
+ * while a background request never waits behind requests that were queued more than its delay after it.
+ *
+ * @author AlienIdeology
+ */
+public enum RequestPriority {
+
+    /**
+     * Latency critical actions, such as banning, kicking and bulk deleting messages.
+     */
+    MODERATION (0),
+
+    /**
+     * The default priority, such as sending messages.
+     */
+    INTERACTIVE (2_000),
+
+    /**
+     * Requests that can wait, such as fetching histories or mass updates.
+     */
+    BACKGROUND (10_000);
+
+    /**
+     * The scheduling delay in milliseconds.
+     */
+    public final long delay;
+
+    RequestPriority(long delay) {
+        this.delay = delay;
+    }
+
+}
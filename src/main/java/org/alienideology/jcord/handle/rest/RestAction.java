@@ -0,0 +1,146 @@
+package org.alienideology.jcord.handle.rest;
+
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.rest.HttpPath;
+import org.alienideology.jcord.internal.rest.Requester;
+import org.alienideology.jcord.util.log.LogLevel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * RestAction - A request to the Rest API that can be performed synchronously or asynchronously.
+ *
+ * To perform an action, one of the following method must be invoked:
+ * <ul>
+ *     <li>{@link #complete()}, which blocks the current thread until the result is returned.</li>
+ *     <li>{@link #queue()} and its overloads, which perform the action on the identity's request pool,
+ *          and accept the result or failure with callbacks.</li>
+ *     <li>{@link #submit()}, which performs the action on the identity's request pool and returns a future.</li>
+ * </ul>
+ * Asynchronous actions never block the calling thread, so they are safe to use in event listeners.
+ *
+ * @author AlienIdeology
+ * @param <T> The type of return value for this action.
+ */
+public abstract class RestAction<T> {
+
+    protected final IdentityImpl identity;
+    private final HttpPath path;
+    private final String[] params;
+    private RequestPriority priority = RequestPriority.INTERACTIVE;
+
+    /**
+     * The constructor for a rest action.
+     * Note that the rest action is constructed internally,
+     * the user wont ever need to use this constructor.
+     *
+     * @param identity The identity of this action.
+     * @param path The path for the http request.
+     * @param params The parameters to complete the path.
+     */
+    public RestAction(IdentityImpl identity, HttpPath path, String... params) {
+        this.identity = identity;
+        this.path = path;
+        this.params = params;
+    }
+
+    /**
+     * Set the priority of this action, which decides the order of waiting actions.
+     * By default, actions have {@link RequestPriority#INTERACTIVE} priority.
+     *
+     * @param priority The priority.
+     * @return RestAction for chaining.
+     */
+    public RestAction<T> setPriority(RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Perform this action and block the current thread until the result is returned.
+     *
+     * @return The result of this action.
+     */
+    public T complete() {
+        Requester requester = new Requester(identity, path).setPriority(priority).request(params);
+        prepare(requester);
+        return request(requester);
+    }
+
+    /**
+     * Asynchronously perform this action, ignoring the result.
+     * Failures are logged by the identity's logger.
+     */
+    public void queue() {
+        queue(null, null);
+    }
+
+    /**
+     * Asynchronously perform this action.
+     * Failures are logged by the identity's logger.
+     *
+     * @param success The consumer of the result, may be {@code null}.
+     */
+    public void queue(Consumer<T> success) {
+        queue(success, null);
+    }
+
+    /**
+     * Asynchronously perform this action.
+     * The callbacks are invoked on the identity's request pool.
+     *
+     * @param success The consumer of the result, may be {@code null}.
+     * @param failure The consumer of any exceptions, or {@code null} to log the exceptions.
+     */
+    public void queue(Consumer<T> success, Consumer<Throwable> failure) {
+        submit().whenComplete((result, ex) -> {
+            if (ex == null) {
+                if (success != null) success.accept(result);
+            } else {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (failure != null) {
+                    failure.accept(cause);
+                } else {
+                    identity.LOG.log(LogLevel.ERROR, "Failed to perform a queued rest action!", cause);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asynchronously perform this action on the identity's request pool.
+     * The future completes exceptionally if the action fails, or if the request pool is full.
+     *
+     * @return The future of the result.
+     */
+    public CompletableFuture<T> submit() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            identity.executeRequest(priority, () -> {
+                try {
+                    future.complete(complete());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    // Update the requester before it is performed, such as adding headers
+    protected void prepare(Requester requester) {
+    }
+
+    // Requester, used to perform request
+    protected abstract T request(Requester requester);
+
+}
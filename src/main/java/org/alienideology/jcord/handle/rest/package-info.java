@@ -0,0 +1,11 @@
+/**
+ * Rest Actions
+ * <p>
+ *     {@link org.alienideology.jcord.handle.rest.RestAction} is a request to the Discord Rest API that can be
+ *     performed either synchronously or asynchronously.
+ *     {@link org.alienideology.jcord.handle.rest.RequestPriority} decides the order of waiting requests.
+ * </p>
+ * @since 0.1.3
+ * @author AlienIdeology
+ */
+package org.alienideology.jcord.handle.rest;
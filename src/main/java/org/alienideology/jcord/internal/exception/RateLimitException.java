@@ -1,7 +1,7 @@
 package org.alienideology.jcord.internal.exception;
 
 /**
- * RateLimitException - An exception for gateway rate limits.
+ * RateLimitException - An exception for gateway and rest rate limits.
  */
 public class RateLimitException extends RuntimeException {
 
@@ -0,0 +1,168 @@
+package org.alienideology.jcord.internal.gateway;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DispatchFilter - The dispatch types an identity does not subscribe to.
+ *
+ * Ignored dispatches are dropped by {@link GatewayAdaptor} before the payload is parsed:
+ * {@link #peek(String)} only reads the top level {@code t} and {@code s} fields of the raw json,
+ * so no json object, event handler, cached object or event is created for them.
+ * The cache is not updated by ignored dispatches, for example the presences of users are
+ * {@link org.alienideology.jcord.handle.user.OnlineStatus#UNKNOWN} when {@code PRESENCE_UPDATE} is ignored.
+ *
+ * @author AlienIdeology
+ */
+public final class DispatchFilter {
+
+    /**
+     * The dispatches which keep the state of a connection, and cannot be ignored.
+     */
+    public static final List<String> REQUIRED = Collections.unmodifiableList(Arrays.asList("READY", "RESUMED"));
+
+    private final Set<String> ignored;
+
+    /**
+     * @param ignored The types of the ignored dispatches, such as {@code PRESENCE_UPDATE} and {@code TYPING_START}.
+     * @throws IllegalArgumentException If a required dispatch is ignored.
+     */
+    public DispatchFilter(Collection<String> ignored) {
+        for (String type : ignored) {
+            if (REQUIRED.contains(type)) {
+                throw new IllegalArgumentException("The " + type + " dispatch cannot be ignored!");
+            }
+        }
+        this.ignored = Collections.unmodifiableSet(new HashSet<>(ignored));
+    }
+
+    /**
+     * @param type The type of a dispatch.
+     * @return True if the dispatch is ignored.
+     */
+    public boolean isIgnored(String type) {
+        return ignored.contains(type);
+    }
+
+    /**
+     * @return The types of the ignored dispatches.
+     */
+    public Set<String> getIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Read the type and sequence of a payload without parsing it.
+     * Only the top level of the json is read, the scan stops once both fields are found,
+     * which is before the data for payloads ordered like Discord's ({@code t}, {@code s}, {@code op}, {@code d}).
+     *
+     * @param json The raw payload.
+     * @return The header of the payload.
+     */
+    public static Header peek(String json) {
+        String type = null;
+        int sequence = -1;
+
+        int length = json.length();
+        int depth = 0;
+        boolean expectKey = false;
+        char key = 0; // The key of the current top level value, if it is "t" or "s"
+        for (int i = 0; i < length && (type == null || sequence < 0); i++) {
+            char c = json.charAt(i);
+            switch (c) {
+                case '{':
+                case '[':
+                    depth++;
+                    expectKey = depth == 1;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case ',':
+                    expectKey = depth == 1;
+                    break;
+                case '"': {
+                    int end = skipString(json, i);
+                    if (depth == 1) {
+                        if (expectKey) {
+                            key = end == i + 2 ? json.charAt(i + 1) : 0;
+                            expectKey = false;
+                        } else if (key == 't') {
+                            // Dispatch types never contain escapes
+                            type = json.substring(i + 1, end);
+                        }
+                    }
+                    i = end;
+                    break;
+                }
+                default:
+                    if (depth == 1 && key == 's' && c >= '0' && c <= '9') {
+                        sequence = 0;
+                        for (; i < length && json.charAt(i) >= '0' && json.charAt(i) <= '9'; i++) {
+                            sequence = sequence * 10 + (json.charAt(i) - '0');
+                        }
+                        i--;
+                        key = 0;
+                    }
+            }
+        }
+        return new Header(type, sequence);
+    }
+
+    /**
+     * @return The index of the closing quote of the string starting at an index.
+     */
+    private static int skipString(String json, int start) {
+        int length = json.length();
+        for (int i = start + 1; i < length; i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchFilter{" +
+                "ignored=" + ignored +
+                '}';
+    }
+
+    /**
+     * Header - The type and sequence of a payload, read by {@link #peek(String)}.
+     */
+    public static final class Header {
+
+        private final String type;
+        private final int sequence;
+
+        private Header(String type, int sequence) {
+            this.type = type;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return The type of the dispatch, or null if the payload is not a dispatch.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return The sequence of the dispatch, or -1 if the payload has no sequence.
+         */
+        public int getSequence() {
+            return sequence;
+        }
+    }
+
+}
@@ -21,7 +21,11 @@ import org.json.JSONObject;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.Inflater;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
 
 /**
  * GatewayAdaptor - Communication java.client for Discord GateWay
@@ -30,17 +34,49 @@ import java.util.zip.Inflater;
  */
 public final class GatewayAdaptor extends WebSocketAdapter {
 
+    /* Shared by the heartbeats of every connection */
+    private static final ScheduledThreadPoolExecutor HEARTBEAT;
+
+    static {
+        HEARTBEAT = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HEARTBEAT.setRemoveOnCancelPolicy(true);
+    }
+
     public final Logger LOG;
 
     private IdentityImpl identity;
-    private WebSocket webSocket;
-    private Thread heart;
+    private volatile WebSocket webSocket;
+    private final int shardId;
+    private final int shardCount;
+    private volatile Identity.Connection connection = Identity.Connection.OFFLINE;
+    private ZlibDecoder decoder;
+    /* Guards the decoder, which is used by the reading thread and closed by the thread disconnecting */
+    private final Object decoderLock = new Object();
+    /* True after disconnect, the adaptor does not connect again */
+    private volatile boolean closed = false;
+    private final GatewaySendQueue sendQueue = new GatewaySendQueue(this);
+    private ScheduledFuture<?> identification;
+    private ScheduledFuture<?> heartbeat;
     private long interval;
+    private volatile boolean acknowledged = true;
+    private volatile long heartbeatSent;
+    private volatile long latency = -1;
+    private volatile boolean reconnecting = false;
+    private GatewayRecorder recorder;
+    /* True when replaying a recording, nothing is sent */
+    private boolean replaying = false;
 
     /* Used for resuming and heartbeat */
-    private int sequence;
+    private volatile int sequence;
+    private volatile long ignoredDispatches = 0;
     /* Use for resuming */
-    private String session_id = null;
+    private volatile String session_id = null;
+    /* True until the session set by setSession is resumed */
+    private volatile boolean restored = false;
 
     /* <Event Name, Event Handler> */
     public HashMap<String, EventHandler> eventHandler = new HashMap<>();
@@ -50,21 +86,25 @@ public final class GatewayAdaptor extends WebSocketAdapter {
      *
      * @param identity The identity this gateway belongs to.
      * @param webSocket The WebSocket where events are fired.
+     * @param shardId The id of the shard this gateway connects.
+     * @param shardCount The total number of shards.
      */
-    public GatewayAdaptor(IdentityImpl identity, WebSocket webSocket) {
+    public GatewayAdaptor(IdentityImpl identity, WebSocket webSocket, int shardId, int shardCount) {
         this.identity = identity;
         this.webSocket = webSocket;
-        LOG = identity.LOG.clone(this);
+        this.shardId = shardId;
+        this.shardCount = shardCount;
+        LOG = identity.LOG.clone(shardCount > 1 ? "GatewayAdaptor-" + shardId : "GatewayAdaptor");
         setEventHandler();
     }
 
     @Override
     public void onConnected(WebSocket websocket, Map<String, List<String>> headers) throws Exception {
         LOG.log(LogLevel.INFO, "[CONNECTION] Connected");
-        identity.CONNECTION = Identity.Connection.CONNECTED;
+        setConnection(Identity.Connection.CONNECTED);
 
         if (session_id == null || session_id.isEmpty()) {
-            sendIdentification();
+            queueIdentification();
         } else {
             sendResume();
         }
@@ -75,41 +115,97 @@ public final class GatewayAdaptor extends WebSocketAdapter {
      */
     @Override
     public void onTextMessage(WebSocket websocket, String text) throws Exception {
-        JSONObject json = new JSONObject(text);
-
-        /* Error Response */
-        if (json.has("code")) {
-            ErrorResponse response = ErrorResponse.getByKey(json.getInt("code"));
-            handleError(new ErrorResponseException(response));
-        /* Payload */
-        } else {
-            int opCode = json.getInt("op");
-            handleOPCode(OPCode.getByKey(opCode), text);
+        startDecoder();
+        if (recorder != null && !replaying) {
+            recorder.recordText(shardId, text);
         }
+        handleMessage(text);
     }
 
     @Override
     public void onBinaryMessage(WebSocket websocket, byte[] binary) throws Exception {
+        String decoded;
+        synchronized (decoderLock) {
+            startDecoder();
+            if (decoder == null) return; // Disconnected
+            if (recorder != null && !replaying) {
+                recorder.recordBinary(shardId, binary);
+            }
+            try {
+                decoded = decoder.decode(binary);
+            } catch (DataFormatException ex) {
+                if (replaying) throw ex;
+                // The rest of the stream cannot be decoded, a new connection starts a new stream and resumes the lost events
+                LOG.log(LogLevel.WARN, "[CONNECTION] Received invalid compressed data, reconnecting", ex);
+                if (!reconnecting) {
+                    reconnect();
+                }
+                return;
+            }
+        }
 
-        /* Decoder */
-        Inflater decoder = new Inflater();
-        decoder.setInput(binary, 0, binary.length);
-        byte[] result = new byte[128];
+        /* Wait for the rest of the payload */
+        if (decoded == null) return;
 
-        StringBuilder decoded = new StringBuilder();
+        handleMessage(decoded);
+    }
 
-        while (!decoder.finished()) {
-            int length = decoder.inflate(result);
-            decoded.append(new String(result, 0, length, "UTF-8"));
+    /**
+     * Start the decoder of a new connection with its first frame.
+     * The reading thread may receive frames before {@link #onConnected} is called,
+     * so the decoder and the recording of the connection cannot start there.
+     * No decoder is started once the adaptor is disconnected.
+     */
+    private void startDecoder() {
+        synchronized (decoderLock) {
+            if (decoder != null || closed) return;
+            decoder = new ZlibDecoder(identity.isTransportCompressed());
+            if (recorder != null && !replaying) {
+                recorder.recordConnected(shardId, shardCount, identity.isTransportCompressed());
+            }
         }
+    }
 
-        onTextMessage(websocket, decoded.toString());
+    /**
+     * Free the native memory of the decoder.
+     */
+    private void closeDecoder() {
+        synchronized (decoderLock) {
+            if (decoder != null) {
+                decoder.close();
+                decoder = null;
+            }
+        }
     }
 
-    @Override
-    public void onFrame(WebSocket websocket, WebSocketFrame frame) throws Exception {
-        OPCode code = OPCode.getByKey(frame.getOpcode());
-        handleOPCode(code, frame.getPayloadText());
+    /**
+     * Handling a decoded message
+     * @param text The json message
+     */
+    private void handleMessage(String text) {
+        /* Drop ignored dispatches before parsing them, but keep their sequence for heartbeats and resuming */
+        DispatchFilter filter = identity.getDispatchFilter();
+        if (filter != null) {
+            DispatchFilter.Header header = DispatchFilter.peek(text);
+            if (header.getType() != null && filter.isIgnored(header.getType())) {
+                if (header.getSequence() >= 0) {
+                    sequence = header.getSequence();
+                }
+                ignoredDispatches++;
+                return;
+            }
+        }
+
+        JSONObject json = new JSONObject(text);
+
+        /* Error Response */
+        if (json.has("code")) {
+            ErrorResponse response = ErrorResponse.getByKey(json.getInt("code"));
+            handleError(new ErrorResponseException(response));
+        /* Payload */
+        } else {
+            handleOPCode(OPCode.getByKey(json.getInt("op")), json);
+        }
     }
 
     @Override
@@ -119,7 +215,14 @@ public final class GatewayAdaptor extends WebSocketAdapter {
 
     @Override
     public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame, WebSocketFrame clientCloseFrame, boolean closedByServer) throws Exception {
-        identity.CONNECTION = Identity.Connection.OFFLINE;
+        setConnection(Identity.Connection.OFFLINE);
+        stopHeartbeat();
+        sendQueue.reset();
+        if (identification != null) {
+            identification.cancel(false);
+            identification = null;
+        }
+        closeDecoder();
 
         final int closeCode;
         final String closeReason;
@@ -133,45 +236,78 @@ public final class GatewayAdaptor extends WebSocketAdapter {
 
         identity.getEventManager().dispatchEvent(new DisconnectEvent(identity, this, 0, closedByServer, closeCode, closeReason));
         LOG.log(LogLevel.INFO, "[CONNECTION] Disconnected [Code: " + closeCode + "][Reason: " + closeReason + "]");
+
+        if (reconnecting) {
+            reconnecting = false;
+            LOG.log(LogLevel.INFO, "[CONNECTION] Reconnecting");
+            setConnection(Identity.Connection.CONNECTING);
+            webSocket = websocket.recreate();
+            webSocket.connectAsynchronously();
+        }
     }
 
     /**
      * Handling OP Code
      * @param code OPCode to handle
-     * @param message The json message
+     * @param json The parsed payload
      */
-    private void handleOPCode(OPCode code, String message) {
-        JSONObject json = new JSONObject(message);
+    private void handleOPCode(OPCode code, JSONObject json) {
         switch (code) {
             /* Event */
             case DISPATCH: {
                 handleEvent(json);
+                break;
             }
             /* Server Side HandShake */
             case HELLO: {
                 interval = json.getJSONObject("d").getLong("heartbeat_interval");
-                sendHeartBeat();
+                startHeartbeat();
                 LOG.log(LogLevel.DEBUG, "[RECEIVED] Hello");
                 break;
             }
+            /* Discord asks to reconnect and resume */
+            case RECONNECT: {
+                LOG.log(LogLevel.DEBUG, "[RECEIVED] Reconnect");
+                reconnect();
+                break;
+            }
             /* Client Side HandShake */
             case IDENTIFY: {
                 break;
             }
             /* Heartbeat */
-            case HEARTBEAT_ACK:
+            case HEARTBEAT_ACK: {
+                acknowledged = true;
+                latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heartbeatSent);
+                LOG.log(LogLevel.TRACE, "[HEART] ACK in " + latency + "ms");
+                break;
+            }
+            /* Discord asks for a heartbeat now */
             case HEARTBEAT: {
-                LOG.log(LogLevel.TRACE, "[HEART] "+code);
+                sendHeartbeat();
                 break;
             }
-            case INVALID_SESSION:
-            case RESUME: {
-                sendIdentification();
-                sendHeartBeat();
+            /* The data is true if the session can be resumed */
+            case INVALID_SESSION: {
+                if (json.optBoolean("d", false) && session_id != null) {
+                    LOG.log(LogLevel.DEBUG, "[RECEIVED] Invalid Session, resuming");
+                    sendResume();
+                } else {
+                    LOG.log(LogLevel.DEBUG, "[RECEIVED] Invalid Session, identifying");
+                    session_id = null;
+                    sequence = 0;
+                    if (restored) {
+                        restored = false;
+                        identity.onRestoreFailed(shardId);
+                    }
+                    // No longer resuming, so the identification is sent
+                    setConnection(Identity.Connection.CONNECTED);
+                    queueIdentification();
+                }
                 break;
             }
             default: {
-                LOG.log(LogLevel.FETAL, "[UNKNOWN] OP Code/Message : " +message);
+                LOG.log(LogLevel.FETAL, "[UNKNOWN] OP Code/Message : " + json);
             }
         }
     }
@@ -199,6 +335,7 @@ public final class GatewayAdaptor extends WebSocketAdapter {
                 case "RESUMED": {
                     session_id = event.getString("session_id");
                     LOG.log(LogLevel.DEBUG, "[RECEIVED] Resumed Event");
+                    restored = false;
                     break;
                 }
                 default: {
@@ -208,15 +345,21 @@ public final class GatewayAdaptor extends WebSocketAdapter {
 
             // Handle Error Response
             if (event.has("code")) {
-                handleError(new ErrorResponseException(ErrorResponse.getByKey(json.getInt("code"))));
+                handleError(new ErrorResponseException(ErrorResponse.getByKey(event.getInt("code"))));
                 return;
             }
 
-            // Only fire Non-Gateway events after the connection is ready.
+            // The events of a resumed stored session need the guilds that are still being rebuilt
+            identity.awaitRestore();
+
+            // Only fire Non-Gateway events after the connection is ready,
+            // or while resuming, since Discord replays the missed events before RESUMED.
             if (!(handler instanceof ReadyEventHandler) && !(handler instanceof ResumedEventHandler)) {
-                if (identity.CONNECTION.isReady()) {
+                if (connection.isReady() || connection == Identity.Connection.RESUMING) {
                     LOG.log(LogLevel.DEBUG, "[RECEIVED] " + key);
-                    LOG.log(LogLevel.TRACE, "Event Json: \n" + json.toString(4));
+                    if (LOG.isLevelEnabled(LogLevel.TRACE)) {
+                        LOG.log(LogLevel.TRACE, "Event Json: \n" + json.toString(4));
+                    }
                     handler.dispatchEvent(event, sequence);
                 }
             } else {
@@ -233,30 +376,106 @@ public final class GatewayAdaptor extends WebSocketAdapter {
         identity.getEventManager().dispatchEvent(new ExceptionEvent(identity, exception));
     }
 
-    private void sendHeartBeat() {
-        LOG.log(LogLevel.TRACE, "[HEART] Interval: "+interval);
-        webSocket.setPingInterval(interval);
+    /**
+     * Start beating on the shared scheduler, the first beat is jittered over the interval
+     * so the connections opened together do not beat together.
+     */
+    private void startHeartbeat() {
+        LOG.log(LogLevel.TRACE, "[HEART] Interval: " + interval);
+        stopHeartbeat();
+        if (replaying) return;
+
+        acknowledged = true;
+        long jitter = (long) (interval * ThreadLocalRandom.current().nextDouble());
+        heartbeat = HEARTBEAT.scheduleAtFixedRate(this::beat, jitter, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
 
-        if (heart != null) {
-            heart.interrupt();
+    private void beat() {
+        try {
+            // The connection is a zombie if the last heartbeat was not acknowledged
+            if (!acknowledged) {
+                LOG.log(LogLevel.WARN, "[HEART] The last heartbeat was not acknowledged, reconnecting");
+                reconnect();
+                return;
+            }
+            acknowledged = false;
+            sendHeartbeat();
+        } catch (RuntimeException ex) {
+            LOG.log(LogLevel.ERROR, "[HEART] Failed to send heartbeat", ex);
         }
+    }
 
-        heart = new Thread(() -> {
-            while (identity.CONNECTION.isConnected()) {
-                webSocket.sendText(
-                        new JSONObject()
-                            .put("op", OPCode.HEARTBEAT.key)
-                            .put("d", sequence).toString());
-
-                try {
-                    Thread.sleep(interval);
-                } catch (InterruptedException e) {
-                    LOG.log(LogLevel.FETAL, e);
-                }
+    private void sendHeartbeat() {
+        sendQueue.send(OPCode.HEARTBEAT, sequence == 0 ? null : sequence);
+    }
+
+    /**
+     * Called by the {@link GatewaySendQueue} when a heartbeat leaves the queue,
+     * so the latency does not include the time the heartbeat was queued.
+     */
+    void onHeartbeatSent() {
+        heartbeatSent = System.nanoTime();
+    }
+
+    /**
+     * Close the connection, then connect again and resume the session.
+     * The connection is closed with a code other than 1000, so Discord keeps the session.
+     */
+    public void reconnect() {
+        reconnecting = true;
+        stopHeartbeat();
+        webSocket.disconnect(DisconnectionCode.UNKNOWN.code, "Reconnecting");
+    }
+
+    /**
+     * Close the connection without reconnecting.
+     *
+     * @param resumable True to keep the session, so it can be resumed by a {@link SessionStore}.
+     */
+    public void disconnect(boolean resumable) {
+        reconnecting = false;
+        closed = true;
+        stopHeartbeat();
+        if (identification != null) {
+            identification.cancel(false);
+            identification = null;
+        }
+        // The listeners may be removed before onDisconnected is called, so nothing is left to it
+        sendQueue.clear();
+        closeDecoder();
+        if (resumable) {
+            webSocket.disconnect(DisconnectionCode.UNKNOWN.code, "Shutting down");
+        } else {
+            webSocket.disconnect();
+        }
+    }
+
+    /**
+     * Send the identification in the next free slot of the {@link IdentifyQueue}.
+     */
+    private void queueIdentification() {
+        if (identification != null) {
+            identification.cancel(false);
+        }
+
+        IdentifyQueue queue = IdentifyQueue.getInstance();
+        long delay = queue.getDelay(identity.getToken(), shardId);
+        if (delay > 0) {
+            LOG.log(LogLevel.DEBUG, "[IDENTIFY] Queued for " + delay + "ms");
+        }
+
+        identification = queue.enqueue(identity.getToken(), shardId, () -> {
+            if (connection.isConnected()) {
+                sendIdentification();
             }
         });
-        heart.setName("HEART");
-        heart.start();
     }
 
     private void sendIdentification() throws IllegalArgumentException {
@@ -267,9 +486,8 @@ public final class GatewayAdaptor extends WebSocketAdapter {
                         .put("$browser", JCord.NAME)
                         .put("$device", JCord.NAME)
                 )
-                .put("compress", true)
+                .put("compress", !identity.isTransportCompressed())
                 .put("large_threshold", JCord.GUILD_MEMBERS_LARGE_THRESHOLD)
-                //.put("shard", new int[]{})
                 // TODO: Set presence on startup. This is just a place holder for default presence.
                 .put("presence", new JSONObject()
                         .put("game", new JSONObject()
@@ -277,13 +495,16 @@ public final class GatewayAdaptor extends WebSocketAdapter {
                         .put("status", OnlineStatus.ONLINE)
                         .put("afk", false)
                 );
+        if (identity.getType().equals(IdentityType.BOT)) {
+            identify.put("shard", new int[]{shardId, shardCount});
+        }
 
         send(OPCode.IDENTIFY, identify);
         LOG.log(LogLevel.DEBUG, "[SENT] Identification");
     }
 
     private void sendResume() {
-        identity.CONNECTION = Identity.Connection.RESUMING;
+        setConnection(Identity.Connection.RESUMING);
 
         send(OPCode.RESUME, new JSONObject()
                 .put("token", identity.getToken())
@@ -292,31 +513,145 @@ public final class GatewayAdaptor extends WebSocketAdapter {
         LOG.log(LogLevel.DEBUG, "[SENT] Resume");
     }
 
+    /**
+     * Request all members of a guild. Requests queued at the same time are sent together.
+     *
+     * @param guildId The id of the guild.
+     */
     public void sendRequestMembers(String guildId) {
-        send(OPCode.REQUEST_GUILD_MEMBERS, new JSONObject()
-                .put("guild_id", guildId)
-                .put("query", "")
-                .put("limit", 0)
-        );
+        sendQueue.requestMembers(guildId);
         LOG.log(LogLevel.DEBUG, "[SENT] Request Guild Members for Guild: " + guildId);
     }
 
+    /**
+     * Queue a payload in the {@link GatewaySendQueue} of this connection.
+     *
+     * @param code The OP code of the payload.
+     * @param json The data of the payload.
+     */
     public void send(OPCode code, JSONObject json) {
-        webSocket.sendText(new JSONObject()
-                .put("op", code.key)
-                .put("d", json)
-                .toString()
-        );
+        sendQueue.send(code, json);
     }
 
     public WebSocket getSocket() {
         return webSocket;
     }
 
+    /**
+     * @return The queue of the payloads sent by this connection.
+     */
+    public GatewaySendQueue getSendQueue() {
+        return sendQueue;
+    }
+
     public long getInterval() {
         return interval;
     }
 
+    /**
+     * Set the recorder of the frames received by this connection.
+     *
+     * @param recorder The recorder, or null to stop recording.
+     */
+    public void setRecorder(GatewayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Start replaying a connection of a recording, the connection is handled as connected but never sends anything.
+     * @see GatewayReplayer
+     *
+     * @param transportCompression True if the recorded connection used transport compression.
+     */
+    public void startReplay(boolean transportCompression) {
+        replaying = true;
+        synchronized (decoderLock) {
+            if (decoder != null) {
+                decoder.close();
+            }
+            decoder = new ZlibDecoder(transportCompression);
+        }
+        setConnection(Identity.Connection.CONNECTED);
+    }
+
+    /**
+     * Stop replaying a recording.
+     */
+    public void stopReplay() {
+        closeDecoder();
+        setConnection(Identity.Connection.OFFLINE);
+    }
+
+    /**
+     * @return The id of the session, or null if the session is not ready.
+     */
+    public String getSessionId() {
+        return session_id;
+    }
+
+    /**
+     * @return The sequence of the last event received.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Set the session to resume when connecting, such as a session loaded from a {@link SessionStore}.
+     *
+     * @param sessionId The id of the session.
+     * @param sequence The sequence of the last event received.
+     */
+    public void setSession(String sessionId, int sequence) {
+        this.session_id = sessionId;
+        this.sequence = sequence;
+        this.restored = sessionId != null;
+    }
+
+    /**
+     * Get the latency of this connection, which is the time between the last heartbeat and its acknowledgement.
+     *
+     * @return The latency in milliseconds, or -1 if no heartbeat was acknowledged.
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return The number of dispatches dropped by the identity's {@link DispatchFilter}.
+     */
+    public long getIgnoredDispatchCount() {
+        return ignoredDispatches;
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return The connection of this shard.
+     */
+    public Identity.Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Set the connection of this shard, and update the connection of the identity.
+     *
+     * @param connection The connection.
+     */
+    public void setConnection(Identity.Connection connection) {
+        this.connection = connection;
+        identity.updateConnection();
+        if (connection.isReady()) {
+            sendQueue.drain();
+        }
+    }
+
     private void setEventHandler() {
         /* Gateway Event */
         eventHandler.put("READY", new ReadyEventHandler(identity, this));
@@ -0,0 +1,152 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.alienideology.jcord.util.log.LogLevel;
+import org.alienideology.jcord.util.log.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GatewayRecorder - Records the raw frames received by Gateway connections to an append-only file.
+ *
+ * The file starts with {@link #MAGIC}, followed by records of:
+ * <ul>
+ *     <li>The time the frame was received, in epoch milliseconds (8 bytes).</li>
+ *     <li>The type of the record, {@link #CONNECTED}, {@link #TEXT} or {@link #BINARY} (1 byte).</li>
+ *     <li>The id of the shard which received the frame (2 bytes).</li>
+ *     <li>The length of the content (4 bytes), and the content.</li>
+ * </ul>
+ * Binary frames are recorded compressed, as received. A {@link #CONNECTED} record starts every connection,
+ * its content is 1 byte, 1 if the connection uses transport compression, so the zlib stream can be decoded again,
+ * followed by the shard count (4 bytes). All shards of an identity record to the same file.
+ * The frames are buffered, call {@link #flush()} or {@link #close()} to write them.
+ * If the file cannot be written, the error is logged and the recorder stops recording.
+ *
+ * @see GatewayReplayer
+ * @author AlienIdeology
+ */
+public final class GatewayRecorder implements AutoCloseable {
+
+    /**
+     * The first bytes of a recording.
+     */
+    public static final int MAGIC = 0x4A434732; // JCG2
+
+    public static final byte CONNECTED = 0;
+    public static final byte TEXT = 1;
+    public static final byte BINARY = 2;
+
+    public final Logger LOG = new Logger("GatewayRecorder");
+
+    private final File file;
+    private final DataOutputStream out;
+    private long frames = 0;
+    private boolean failed = false;
+
+    /**
+     * Record to a file. A new file starts with the header, an existing recording is appended to.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public GatewayRecorder(File file) throws IOException {
+        this.file = file;
+        boolean exists = file.isFile() && file.length() > 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024));
+        if (!exists) {
+            out.writeInt(MAGIC);
+        }
+    }
+
+    /**
+     * Record the start of a connection.
+     *
+     * @param shardId The id of the shard.
+     * @param shardCount The number of shards.
+     * @param transportCompression True if the connection uses transport compression.
+     */
+    public void recordConnected(int shardId, int shardCount, boolean transportCompression) {
+        write(shardId, CONNECTED, new byte[]{
+                (byte) (transportCompression ? 1 : 0),
+                (byte) (shardCount >>> 24), (byte) (shardCount >>> 16), (byte) (shardCount >>> 8), (byte) shardCount
+        });
+    }
+
+    /**
+     * @param shardId The id of the shard.
+     * @param text The text frame.
+     */
+    public void recordText(int shardId, String text) {
+        write(shardId, TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param shardId The id of the shard.
+     * @param binary The binary frame, as received.
+     */
+    public void recordBinary(int shardId, byte[] binary) {
+        write(shardId, BINARY, binary);
+    }
+
+    /**
+     * Write a record. The frames are recorded by the reading threads of the connections,
+     * so an error is logged instead of thrown, and no frame is recorded after it.
+     */
+    private synchronized void write(int shardId, byte type, byte[] content) {
+        if (failed) return;
+        try {
+            out.writeLong(System.currentTimeMillis());
+            out.writeByte(type);
+            out.writeShort(shardId);
+            out.writeInt(content.length);
+            out.write(content);
+            frames++;
+        } catch (IOException ex) {
+            failed = true;
+            LOG.log(LogLevel.ERROR, "Failed to record a Gateway frame to " + file + ", stopped recording", ex);
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Write the buffered frames to the file.
+     *
+     * @throws IOException If the frames cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (failed) return;
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (failed) return;
+        out.close();
+    }
+
+    /**
+     * @return True if the recorder stopped recording because the file could not be written.
+     */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return The number of records written.
+     */
+    public synchronized long getFrameCount() {
+        return frames;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.alienideology.jcord.internal.object.IdentityImpl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GatewayReplayer - Replays a recording of a {@link GatewayRecorder} through an identity, without a connection.
+ *
+ * The frames go through {@link GatewayAdaptor#onTextMessage} and {@link GatewayAdaptor#onBinaryMessage}
+ * of a replay shard per recorded shard,
+ * so the event handlers, the object builder and the event manager process them like live traffic.
+ * The replay shard never sends anything, but handlers that request rest endpoints still do,
+ * so replay against the identity's usual transport or a fake server.
+ *
+ * @author AlienIdeology
+ */
+public final class GatewayReplayer {
+
+    private final File file;
+
+    /**
+     * @param file The recording.
+     */
+    public GatewayReplayer(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replay the recording through an identity that is not logged in.
+     * A replay shard is created for every shard of the recording, each with its own decoder.
+     *
+     * @param identity The identity.
+     * @param realTime True to wait between frames as recorded, false to replay at maximum speed.
+     * @return The statistics of the replay.
+     * @throws IOException If the recording cannot be read.
+     */
+    public Result replay(IdentityImpl identity, boolean realTime) throws IOException {
+        List<GatewayAdaptor> shards = Collections.emptyList();
+
+        long frames = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != GatewayRecorder.MAGIC) {
+                throw new IOException(file + " is not a Gateway recording!");
+            }
+
+            long firstRecorded = -1;
+            while (true) {
+                long time;
+                try {
+                    time = in.readLong();
+                } catch (EOFException end) {
+                    break;
+                }
+                byte type = in.readByte();
+                int shardId = in.readUnsignedShort();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+
+                if (realTime) {
+                    if (firstRecorded == -1) firstRecorded = time;
+                    long wait = (time - firstRecorded) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (wait > 0) {
+                        try {
+                            Thread.sleep(wait);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+
+                if (type == GatewayRecorder.CONNECTED) {
+                    int shardCount = content.length >= 5 ? ByteBuffer.wrap(content, 1, 4).getInt() : 1;
+                    if (shards.size() != shardCount) {
+                        stopReplay(shards);
+                        shards = identity.getShardManager().createReplayShards(shardCount);
+                    }
+                }
+                if (shardId >= shards.size()) {
+                    throw new IOException("Frame " + frames + " of " + file + " belongs to shard " + shardId + " before it connected!");
+                }
+                GatewayAdaptor gateway = shards.get(shardId);
+
+                try {
+                    switch (type) {
+                        case GatewayRecorder.CONNECTED:
+                            gateway.startReplay(content.length > 0 && content[0] == 1);
+                            break;
+                        case GatewayRecorder.TEXT:
+                            gateway.onTextMessage(gateway.getSocket(), new String(content, StandardCharsets.UTF_8));
+                            break;
+                        case GatewayRecorder.BINARY:
+                            gateway.onBinaryMessage(gateway.getSocket(), content);
+                            break;
+                        default:
+                            throw new IOException("Unknown record type " + type + " in " + file);
+                    }
+                } catch (IOException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IOException("Failed to replay frame " + frames + " of " + file, ex);
+                }
+                frames++;
+                bytes += content.length;
+            }
+        } finally {
+            stopReplay(shards);
+        }
+
+        return new Result(frames, bytes, System.nanoTime() - start);
+    }
+
+    private void stopReplay(List<GatewayAdaptor> shards) {
+        for (GatewayAdaptor shard : shards) {
+            shard.stopReplay();
+        }
+    }
+
+    /**
+     * Result - The statistics of a replay.
+     */
+    public static final class Result {
+
+        private final long frames;
+        private final long bytes;
+        private final long elapsed;
+
+        private Result(long frames, long bytes, long elapsed) {
+            this.frames = frames;
+            this.bytes = bytes;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return The number of records replayed.
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return The number of bytes replayed, as recorded.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The time the replay took in nanoseconds.
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return The number of records handled per second.
+         */
+        public double getFramesPerSecond() {
+            return elapsed == 0 ? 0 : frames * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "frames=" + frames +
+                    ", bytes=" + bytes +
+                    ", elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms" +
+                    ", framesPerSecond=" + getFramesPerSecond() +
+                    '}';
+        }
+    }
+
+}
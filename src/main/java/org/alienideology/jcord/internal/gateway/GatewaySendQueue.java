@@ -0,0 +1,274 @@
+package org.alienideology.jcord.internal.gateway;
+
+import com.neovisionaries.ws.client.WebSocket;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GatewaySendQueue - The outgoing payloads of a {@link GatewayAdaptor}, limited to what Discord accepts.
+ *
+ * Discord closes connections that send more than {@link #LIMIT} payloads in {@link #WINDOW} milliseconds.
+ * The queue keeps the time of the last {@link #LIMIT} sends, and a payload waits until fewer payloads
+ * were sent in the last window. {@link #RESERVED} sends of every window are kept for heartbeats,
+ * identifies and resumes, which are sent before any other payload.
+ * Other payloads wait until the connection is ready, and are merged while they wait:
+ * member requests of several guilds are sent as one request, and only the latest status update is sent.
+ * A member request is also held for {@link #MEMBER_REQUEST_LINGER} milliseconds after it is queued,
+ * so the requests of a burst of guild creates after the connection is ready are merged as well.
+ *
+ * @author AlienIdeology
+ */
+public final class GatewaySendQueue {
+
+    /**
+     * The number of payloads a connection can send per window.
+     */
+    public static final int LIMIT = 120;
+
+    /**
+     * The window of the limit in milliseconds.
+     */
+    public static final long WINDOW = 60_000;
+
+    /**
+     * The number of sends per window that only heartbeats, identifies and resumes can use.
+     */
+    public static final int RESERVED = 5;
+
+    /**
+     * The maximum number of guilds in a single member request.
+     */
+    public static final int MEMBER_REQUEST_BATCH = 50;
+
+    /**
+     * The time in milliseconds a member request waits for the requests of other guilds, unless it is full.
+     */
+    public static final long MEMBER_REQUEST_LINGER = 1_000;
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+    static {
+        SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "GatewaySendQueue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final GatewayAdaptor gateway;
+
+    private final Deque<Payload> priority = new ArrayDeque<>();
+    private final Deque<Payload> normal = new ArrayDeque<>();
+    private ScheduledFuture<?> drain;
+
+    /* The time of the last sends, next is the index of the oldest one */
+    private final long[] sent = new long[LIMIT];
+    private int next = 0;
+    private int count = 0;
+    private long totalSent = 0;
+
+    GatewaySendQueue(GatewayAdaptor gateway) {
+        this.gateway = gateway;
+    }
+
+    /**
+     * Queue a payload. Heartbeats, identifies and resumes are sent first,
+     * a status update replaces a status update that is still queued.
+     *
+     * @param code The OP code of the payload.
+     * @param data The data of the payload.
+     */
+    public synchronized void send(OPCode code, Object data) {
+        switch (code) {
+            case HEARTBEAT:
+            case IDENTIFY:
+            case RESUME:
+                priority.addLast(new Payload(code, data));
+                break;
+            case STATUS_UPDATE:
+                for (Payload payload : normal) {
+                    if (payload.code == OPCode.STATUS_UPDATE) {
+                        payload.data = data;
+                        return;
+                    }
+                }
+                normal.addLast(new Payload(code, data));
+                break;
+            default:
+                normal.addLast(new Payload(code, data));
+                break;
+        }
+        drain();
+    }
+
+    /**
+     * Queue a request of all members of a guild, merged with the queued requests of other guilds.
+     * Nothing is queued if the guild is already requested by a queued request.
+     *
+     * @param guildId The id of the guild.
+     */
+    public synchronized void requestMembers(String guildId) {
+        Payload batch = null;
+        for (Payload payload : normal) {
+            if (payload.guildIds != null) {
+                if (payload.guildIds.contains(guildId)) return;
+                if (batch == null && payload.guildIds.size() < MEMBER_REQUEST_BATCH) batch = payload;
+            }
+        }
+        if (batch == null) {
+            batch = new Payload(OPCode.REQUEST_GUILD_MEMBERS, null);
+            batch.guildIds = new ArrayList<>();
+            batch.lingerUntil = System.currentTimeMillis() + MEMBER_REQUEST_LINGER;
+            normal.addLast(batch);
+        }
+        batch.guildIds.add(guildId);
+        drain();
+    }
+
+    /**
+     * Send the queued payloads which the limit allows now, and schedule the rest.
+     * Called when a payload is queued, and when the connection becomes ready.
+     */
+    synchronized void drain() {
+        WebSocket socket = gateway.getSocket();
+        while (socket.isOpen()) {
+            boolean isPriority = !priority.isEmpty();
+            if (!isPriority && (normal.isEmpty() || !gateway.getConnection().isReady())) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long wait = getWait(isPriority ? LIMIT : LIMIT - RESERVED, now);
+            if (wait > 0) {
+                if (schedule(wait)) {
+                    gateway.LOG.log(LogLevel.DEBUG, "[SEND] Rate limited, " + size() + " payloads wait for " + wait + "ms");
+                }
+                return;
+            }
+
+            /* A member request that is not full waits for other guilds, the payloads behind it keep their order */
+            if (!isPriority) {
+                Payload first = normal.peekFirst();
+                if (first.guildIds != null && first.guildIds.size() < MEMBER_REQUEST_BATCH && first.lingerUntil > now) {
+                    schedule(first.lingerUntil - now);
+                    return;
+                }
+            }
+
+            Payload payload = (isPriority ? priority : normal).pollFirst();
+            if (payload.code == OPCode.HEARTBEAT) {
+                gateway.onHeartbeatSent();
+            }
+            socket.sendText(payload.toString());
+            sent[next] = now;
+            next = (next + 1) % LIMIT;
+            count = Math.min(count + 1, LIMIT);
+            totalSent++;
+        }
+    }
+
+    /**
+     * Schedule the next drain, unless a drain is already scheduled at the same time or earlier.
+     *
+     * @return True if the drain is scheduled.
+     */
+    private boolean schedule(long delay) {
+        if (drain != null && drain.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+            return false;
+        }
+        if (drain != null) {
+            drain.cancel(false);
+        }
+        drain = SCHEDULER.schedule(() -> {
+            synchronized (this) {
+                drain = null;
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Get the time until fewer than a number of payloads were sent in the last window.
+     */
+    private long getWait(int allowed, long now) {
+        if (count < allowed) return 0;
+        long time = sent[(next - allowed + LIMIT) % LIMIT];
+        return Math.max(time + WINDOW - now, 0);
+    }
+
+    /**
+     * Reset the limit for the next connection. The queued heartbeats, identifies and resumes
+     * belong to the closed connection and are dropped, the other payloads wait for the next connection.
+     */
+    synchronized void reset() {
+        priority.clear();
+        if (drain != null) {
+            drain.cancel(false);
+            drain = null;
+        }
+        next = 0;
+        count = 0;
+    }
+
+    /**
+     * Drop every queued payload, when the connection is closed for good.
+     */
+    synchronized void clear() {
+        reset();
+        normal.clear();
+    }
+
+    /**
+     * @return The number of queued payloads.
+     */
+    public synchronized int size() {
+        return priority.size() + normal.size();
+    }
+
+    /**
+     * @return The number of payloads sent by this queue.
+     */
+    public synchronized long getSentCount() {
+        return totalSent;
+    }
+
+    private static final class Payload {
+
+        private final OPCode code;
+        private Object data;
+        private List<String> guildIds;
+        private long lingerUntil;
+
+        private Payload(OPCode code, Object data) {
+            this.code = code;
+            this.data = data;
+        }
+
+        @Override
+        public String toString() {
+            Object d = data;
+            if (guildIds != null) {
+                d = new JSONObject()
+                        .put("guild_id", guildIds.size() == 1 ? guildIds.get(0) : new JSONArray(guildIds))
+                        .put("query", "")
+                        .put("limit", 0);
+            }
+            return new JSONObject()
+                    .put("op", code.key)
+                    .put("d", d == null ? JSONObject.NULL : d)
+                    .toString();
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.alienideology.jcord.internal.gateway;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdentifyQueue - Schedules the identifications of every Gateway connection in this process.
+ *
+ * Discord allows a bot one identify per {@link #IDENTIFY_DELAY} in each of its {@code max_concurrency} buckets,
+ * and the bucket of a shard is {@code shard_id % max_concurrency}. Each identify reserves the next free slot of its bucket,
+ * so the shards of a bot identify as fast as the limit allows, even when several identities share the same token.
+ * Resuming is not limited, so connections with a session resume directly instead of going through this queue.
+ *
+ * @author AlienIdeology
+ */
+public final class IdentifyQueue {
+
+    /**
+     * The time in milliseconds between two identifies of a bucket.
+     */
+    public static final long IDENTIFY_DELAY = 5000;
+
+    private static final IdentifyQueue INSTANCE = new IdentifyQueue();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /* <Token, Max Concurrency> */
+    private final Map<String, Integer> concurrency = new ConcurrentHashMap<>();
+    /* <Token:Bucket, Next free slot> */
+    private final Map<String, Long> slots = new ConcurrentHashMap<>();
+
+    private IdentifyQueue() {
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "IdentifyQueue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return The identify queue of this process.
+     */
+    public static IdentifyQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the number of identify buckets of a bot, which is the {@code max_concurrency} of {@code GET /gateway/bot}.
+     *
+     * @param token The token of the bot.
+     * @param maxConcurrency The number of buckets.
+     */
+    public void setMaxConcurrency(String token, int maxConcurrency) {
+        concurrency.put(token, Math.max(maxConcurrency, 1));
+    }
+
+    /**
+     * Schedule an identification in the next free slot of a shard's bucket.
+     *
+     * @param token The token of the identity.
+     * @param shardId The id of the shard.
+     * @param identify The task sending the identification.
+     * @return The scheduled identification, which can be cancelled if the connection closes before it is sent.
+     */
+    public ScheduledFuture<?> enqueue(String token, int shardId, Runnable identify) {
+        String bucket = token + ":" + shardId % concurrency.getOrDefault(token, 1);
+        long now = System.currentTimeMillis();
+
+        // Reserve the slot atomically, the map holds the slot after it
+        long slot = slots.compute(bucket, (key, next) -> (next == null || next < now ? now : next) + IDENTIFY_DELAY)
+                - IDENTIFY_DELAY;
+
+        return scheduler.schedule(identify, slot - now, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the time until the next free slot of a shard's bucket.
+     *
+     * @param token The token of the identity.
+     * @param shardId The id of the shard.
+     * @return The time in milliseconds, or 0 if a shard can identify now.
+     */
+    public long getDelay(String token, int shardId) {
+        Long next = slots.get(token + ":" + shardId % concurrency.getOrDefault(token, 1));
+        return next == null ? 0 : Math.max(next - System.currentTimeMillis(), 0);
+    }
+
+}
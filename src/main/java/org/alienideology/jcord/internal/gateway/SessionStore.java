@@ -0,0 +1,190 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.alienideology.jcord.handle.guild.IGuild;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SessionStore - Persists the Gateway sessions of an identity, so a restarted process can resume them.
+ *
+ * The session id and sequence of every shard are written to a json file when the identity logs out,
+ * or when the JVM shuts down. On the next login, shards with a stored session resume instead of identifying,
+ * and Discord only replays the events missed in between.
+ *
+ * Since resumed sessions do not receive the ready event, the cache is rebuilt with rest requests.
+ * With a snapshot, the store also keeps the ids of the guilds, so only those guilds are requested.
+ * Sessions expire a few minutes after the connection closes, expired sessions fall back to identifying.
+ *
+ * @author AlienIdeology
+ */
+public final class SessionStore {
+
+    private final File file;
+    private final boolean snapshot;
+
+    /* <Shard Id, Session> */
+    private final Map<Integer, JSONObject> sessions = new HashMap<>();
+    private List<String> guildIds;
+
+    /**
+     * Store the sessions in a file, with a snapshot of the guild ids.
+     *
+     * @param file The file.
+     */
+    public SessionStore(File file) {
+        this(file, true);
+    }
+
+    /**
+     * @param file The file.
+     * @param snapshot True to store the ids of the guilds, false to request them when resuming.
+     */
+    public SessionStore(File file, boolean snapshot) {
+        this.file = file;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Write the sessions of an identity's shards to the file.
+     * The file is replaced atomically, so a crash while saving keeps the previous sessions.
+     *
+     * @param identity The identity.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void save(IdentityImpl identity) throws IOException {
+        List<GatewayAdaptor> shards = identity.getShardManager().getShards();
+
+        JSONArray array = new JSONArray();
+        for (GatewayAdaptor shard : shards) {
+            if (shard.getSessionId() == null) continue;
+            array.put(new JSONObject()
+                    .put("shard_id", shard.getShardId())
+                    .put("session_id", shard.getSessionId())
+                    .put("seq", shard.getSequence()));
+        }
+
+        JSONObject json = new JSONObject()
+                .put("shard_count", shards.size())
+                .put("saved_at", System.currentTimeMillis())
+                .put("sessions", array);
+        if (snapshot) {
+            JSONArray guilds = new JSONArray();
+            for (IGuild guild : identity.getGuilds()) {
+                guilds.put(guild.getId());
+            }
+            json.put("guilds", guilds);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            Files.write(temp.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Read the sessions from the file.
+     * Sessions stored for a different number of shards are ignored, since the guilds of each shard changed.
+     *
+     * @param shardCount The number of shards of the identity.
+     * @return True if there is a session to resume.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized boolean load(int shardCount) throws IOException {
+        sessions.clear();
+        guildIds = null;
+        if (!file.isFile()) return false;
+
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            if (json.getInt("shard_count") != shardCount) return false;
+
+            JSONArray array = json.getJSONArray("sessions");
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject session = array.getJSONObject(i);
+                sessions.put(session.getInt("shard_id"), session);
+            }
+
+            if (json.has("guilds")) {
+                List<String> ids = new ArrayList<>();
+                JSONArray guilds = json.getJSONArray("guilds");
+                for (int i = 0; i < guilds.length(); i++) {
+                    ids.add(guilds.getString(i));
+                }
+                guildIds = Collections.unmodifiableList(ids);
+            }
+        } catch (JSONException ex) {
+            throw new IOException("The session store " + file + " is corrupted!", ex);
+        }
+        return !sessions.isEmpty();
+    }
+
+    /**
+     * Forget the loaded sessions and delete the file, such as after the sessions failed to resume.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        sessions.clear();
+        guildIds = null;
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * @param shardId The shard id.
+     * @return The loaded session id of a shard, or null if the shard has no session.
+     */
+    public synchronized String getSessionId(int shardId) {
+        JSONObject session = sessions.get(shardId);
+        return session == null ? null : session.getString("session_id");
+    }
+
+    /**
+     * @param shardId The shard id.
+     * @return The loaded sequence of a shard, or 0 if the shard has no session.
+     */
+    public synchronized int getSequence(int shardId) {
+        JSONObject session = sessions.get(shardId);
+        return session == null ? 0 : session.getInt("seq");
+    }
+
+    /**
+     * @return The loaded guild ids, or null if the store has no snapshot.
+     */
+    public synchronized List<String> getGuildIds() {
+        return guildIds;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean hasSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionStore{" +
+                "file=" + file +
+                ", snapshot=" + snapshot +
+                '}';
+    }
+
+}
@@ -0,0 +1,256 @@
+package org.alienideology.jcord.internal.gateway;
+
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketException;
+import com.neovisionaries.ws.client.WebSocketFactory;
+import org.alienideology.jcord.Identity;
+import org.alienideology.jcord.handle.guild.IGuild;
+import org.alienideology.jcord.handle.user.IUser;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * ShardManager - Manages the Gateway connections (shards) of an identity.
+ *
+ * Each shard is a {@link GatewayAdaptor} that receives the events of the guilds with
+ * {@code (guild_id >> 22) % shard_count} equal to its shard id. Direct messages are only sent to shard 0.
+ * All shards share the identity's cache, so the guilds and users of every shard are available from the identity.
+ * The shards connect at once, and identify through the {@link IdentifyQueue}.
+ *
+ * @author AlienIdeology
+ */
+public final class ShardManager {
+
+    private final IdentityImpl identity;
+    private final WebSocketFactory wsFactory;
+
+    private volatile List<GatewayAdaptor> shards = Collections.emptyList();
+    private GatewayRecorder recorder;
+
+    public ShardManager(IdentityImpl identity, WebSocketFactory wsFactory) {
+        this.identity = identity;
+        this.wsFactory = wsFactory;
+    }
+
+    /**
+     * Open a connection for every shard.
+     *
+     * @param url The url of the Gateway, with the query parameters.
+     * @param shardCount The number of shards.
+     * @param maxConcurrency The number of shards that can identify at the same time.
+     * @param store The loaded sessions to resume, or null to identify every shard.
+     * @throws IOException If a web socket cannot be created.
+     * @throws WebSocketException If a connection fails.
+     */
+    public void connect(URI url, int shardCount, int maxConcurrency, SessionStore store) throws IOException, WebSocketException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("The shard count must be positive! Provided count: " + shardCount);
+        }
+        IdentifyQueue.getInstance().setMaxConcurrency(identity.getToken(), maxConcurrency);
+
+        List<GatewayAdaptor> adaptors = new ArrayList<>();
+        for (int id = 0; id < shardCount; id++) {
+            WebSocket socket = wsFactory.createSocket(url);
+            GatewayAdaptor gateway = new GatewayAdaptor(identity, socket, id, shardCount);
+            if (store != null && store.getSessionId(id) != null) {
+                gateway.setSession(store.getSessionId(id), store.getSequence(id));
+            }
+            gateway.setRecorder(recorder);
+            socket.addListener(gateway);
+            adaptors.add(gateway);
+        }
+        shards = Collections.unmodifiableList(adaptors);
+
+        for (GatewayAdaptor shard : adaptors) {
+            shard.getSocket().connect();
+            identity.LOG.log(LogLevel.DEBUG, "[SHARD] Connecting shard " + shard.getShardId() + "/" + shardCount);
+        }
+    }
+
+    /**
+     * Create shards that are never connected, to replay a recording through the identity.
+     * @see GatewayReplayer
+     *
+     * @param shardCount The number of shards of the recording.
+     * @return The shards, by shard id.
+     * @throws IOException If a web socket cannot be created.
+     */
+    public List<GatewayAdaptor> createReplayShards(int shardCount) throws IOException {
+        List<GatewayAdaptor> adaptors = new ArrayList<>();
+        for (int id = 0; id < shardCount; id++) {
+            adaptors.add(new GatewayAdaptor(identity, wsFactory.createSocket("ws://localhost"), id, shardCount));
+        }
+        shards = Collections.unmodifiableList(adaptors);
+        return shards;
+    }
+
+    /**
+     * Set the recorder of the frames received by every shard.
+     *
+     * @param recorder The recorder, or null to stop recording.
+     */
+    public void setRecorder(GatewayRecorder recorder) {
+        this.recorder = recorder;
+        for (GatewayAdaptor shard : shards) {
+            shard.setRecorder(recorder);
+        }
+    }
+
+    public GatewayRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Close the connection of every shard.
+     *
+     * @param resumable True to keep the sessions, so they can be resumed by a {@link SessionStore}.
+     */
+    public void disconnect(boolean resumable) {
+        for (GatewayAdaptor shard : shards) {
+            shard.disconnect(resumable);
+            shard.getSocket().clearListeners();
+        }
+    }
+
+    /**
+     * Send a payload to every shard, such as a presence update.
+     *
+     * @param code The OP code of the payload.
+     * @param json The data of the payload.
+     */
+    public void sendToAll(OPCode code, JSONObject json) {
+        for (GatewayAdaptor shard : shards) {
+            shard.send(code, json);
+        }
+    }
+
+    /**
+     * Get the shard id of a guild.
+     *
+     * @param guildId The id of the guild.
+     * @return The shard id.
+     */
+    public int getShardId(String guildId) {
+        return (int) ((Long.parseLong(guildId) >> 22) % Math.max(shards.size(), 1));
+    }
+
+    /**
+     * @param shardId The shard id.
+     * @return The shard, or null if there is no shard with this id.
+     */
+    public GatewayAdaptor getShard(int shardId) {
+        List<GatewayAdaptor> shards = this.shards;
+        return shardId >= 0 && shardId < shards.size() ? shards.get(shardId) : null;
+    }
+
+    /**
+     * Get the shard receiving the events of a guild.
+     *
+     * @param guildId The id of the guild.
+     * @return The shard.
+     */
+    public GatewayAdaptor getShardFor(String guildId) {
+        return getShard(getShardId(guildId));
+    }
+
+    /**
+     * @return The shards, ordered by shard id.
+     */
+    public List<GatewayAdaptor> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Get the connection of the identity, which is only ready when every shard is ready.
+     *
+     * @return The least advanced connection of the shards.
+     */
+    public Identity.Connection getConnection() {
+        List<GatewayAdaptor> shards = this.shards;
+        if (shards.isEmpty()) return Identity.Connection.OFFLINE;
+
+        Identity.Connection connection = Identity.Connection.READY;
+        for (GatewayAdaptor shard : shards) {
+            Identity.Connection state = shard.getConnection();
+            if (rank(state) < rank(connection)) {
+                connection = state;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * @return The average latency of the shards in milliseconds, or -1 if no shard has a latency yet.
+     */
+    public long getAverageLatency() {
+        return (long) shards.stream().mapToLong(GatewayAdaptor::getLatency)
+                .filter(latency -> latency >= 0)
+                .average().orElse(-1);
+    }
+
+    /**
+     * @return The guilds of every shard.
+     */
+    public List<IGuild> getGuilds() {
+        return identity.getGuilds();
+    }
+
+    /**
+     * @param shardId The shard id.
+     * @return The guilds of a shard.
+     */
+    public List<IGuild> getGuilds(int shardId) {
+        return identity.getGuilds().stream()
+                .filter(guild -> getShardId(guild.getId()) == shardId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param id The id of the user.
+     * @return The user in any shard, or null if no shard knows the user.
+     */
+    public IUser getUser(String id) {
+        return identity.getUser(id);
+    }
+
+    /**
+     * @return The users of every shard.
+     */
+    public List<IUser> getUsers() {
+        return identity.getUsers();
+    }
+
+    private static int rank(Identity.Connection connection) {
+        switch (connection) {
+            case OFFLINE: return 0;
+            case CONNECTING: return 1;
+            case RESUMING: return 2;
+            case CONNECTED: return 3;
+            default: return 4;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardManager{" +
+                "shards=" + shards.size() +
+                ", connection=" + getConnection() +
+                '}';
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.alienideology.jcord.internal.gateway;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * ZlibDecoder - Decompress the binary messages of a Gateway connection.
+ *
+ * In transport compression mode ({@code compress=zlib-stream}), the whole connection is one zlib stream,
+ * so a single {@link Inflater} keeps its context for the lifetime of the connection.
+ * Frames are buffered until a frame ends with the {@link #ZLIB_SUFFIX}, then the payload is inflated
+ * and decoded from UTF-8 once. In payload compression mode, each binary message is a complete zlib stream,
+ * and the inflater is reset after each of them.
+ *
+ * The buffers grow with the largest payload, and shrink back after a payload larger than {@link #MAX_RETAINED_SIZE}.
+ * Invalid data cannot be skipped in a zlib stream, so the decoder is {@link #reset()} and the connection
+ * must start a new stream by reconnecting.
+ * A decoder is not thread safe, and must be {@link #close() closed} to free the native memory of the inflater.
+ *
+ * @author AlienIdeology
+ */
+public final class ZlibDecoder {
+
+    /**
+     * The four bytes ({@code 00 00 FF FF}) that end every complete payload of a zlib stream.
+     */
+    public static final int ZLIB_SUFFIX = 0x0000FFFF;
+
+    private static final int INITIAL_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private final boolean stream;
+    private final Inflater inflater = new Inflater();
+
+    private byte[] compressed = new byte[INITIAL_SIZE];
+    private int compressedLength = 0;
+    private byte[] decompressed = new byte[INITIAL_SIZE * 4];
+
+    /**
+     * @param stream True for transport compression (zlib-stream), false for payload compression.
+     */
+    public ZlibDecoder(boolean stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Decode a binary message.
+     *
+     * @param frame The binary message.
+     * @return The decoded json text, or null if the payload is not complete yet.
+     * @throws DataFormatException If the compressed data is invalid, the decoder is reset.
+     */
+    public String decode(byte[] frame) throws DataFormatException {
+        if (!stream) {
+            try {
+                return inflate(frame, frame.length);
+            } finally {
+                inflater.reset();
+            }
+        }
+
+        compressed = ensureCapacity(compressed, compressedLength, frame.length);
+        System.arraycopy(frame, 0, compressed, compressedLength, frame.length);
+        compressedLength += frame.length;
+
+        if (compressedLength < 4 || readSuffix() != ZLIB_SUFFIX) {
+            return null;
+        }
+
+        String text;
+        try {
+            text = inflate(compressed, compressedLength);
+        } catch (DataFormatException ex) {
+            reset();
+            throw ex;
+        }
+        compressedLength = 0;
+        if (compressed.length > MAX_RETAINED_SIZE) {
+            compressed = new byte[INITIAL_SIZE];
+        }
+        return text;
+    }
+
+    /**
+     * Drop the buffered frames and the context of the stream, so the decoder can decode a new stream.
+     */
+    public void reset() {
+        inflater.reset();
+        compressedLength = 0;
+        if (compressed.length > MAX_RETAINED_SIZE) {
+            compressed = new byte[INITIAL_SIZE];
+        }
+    }
+
+    /**
+     * @return True if part of a payload is buffered, waiting for the rest of it.
+     */
+    public boolean isBuffering() {
+        return compressedLength > 0;
+    }
+
+    /**
+     * Free the inflater. The decoder cannot be used afterward.
+     */
+    public void close() {
+        inflater.end();
+        compressedLength = 0;
+    }
+
+    private String inflate(byte[] input, int length) throws DataFormatException {
+        inflater.setInput(input, 0, length);
+
+        int size = 0;
+        while (true) {
+            if (size == decompressed.length) {
+                decompressed = ensureCapacity(decompressed, size, size);
+            }
+            int inflated = inflater.inflate(decompressed, size, decompressed.length - size);
+            size += inflated;
+
+            if (inflated == 0) {
+                if (inflater.needsDictionary()) {
+                    throw new DataFormatException("The Gateway payload requires a preset dictionary!");
+                }
+                if (inflater.finished() || inflater.needsInput()) {
+                    break;
+                }
+            }
+        }
+
+        String text = new String(decompressed, 0, size, StandardCharsets.UTF_8);
+        if (decompressed.length > MAX_RETAINED_SIZE) {
+            decompressed = new byte[INITIAL_SIZE * 4];
+        }
+        return text;
+    }
+
+    private int readSuffix() {
+        return ((compressed[compressedLength - 4] & 0xFF) << 24)
+                | ((compressed[compressedLength - 3] & 0xFF) << 16)
+                | ((compressed[compressedLength - 2] & 0xFF) << 8)
+                | (compressed[compressedLength - 1] & 0xFF);
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int length, int extra) {
+        if (length + extra <= buffer.length) {
+            return buffer;
+        }
+        byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        return grown;
+    }
+
+}
@@ -4,6 +4,14 @@
  *     {@link org.alienideology.jcord.internal.gateway.GatewayAdaptor} is the listener to the Gateway connection with Discord.
  *     {@link org.alienideology.jcord.internal.gateway.OPCode} and {@link org.alienideology.jcord.internal.gateway.DisconnectionCode}
  *     are enumerations representing codes and responses of Discord Gateway.
+ *     {@link org.alienideology.jcord.internal.gateway.ShardManager} holds a connection per shard of an identity.
+ *     {@link org.alienideology.jcord.internal.gateway.IdentifyQueue} spaces out the identifications of every connection in the process.
+ *     {@link org.alienideology.jcord.internal.gateway.SessionStore} persists the sessions of the shards to resume them after a restart.
+ *     {@link org.alienideology.jcord.internal.gateway.GatewayRecorder} records the frames of the connections,
+ *     which {@link org.alienideology.jcord.internal.gateway.GatewayReplayer} replays without a connection.
+ *     {@link org.alienideology.jcord.internal.gateway.GatewaySendQueue} limits the payloads sent by a connection, heartbeats first.
+ *     {@link org.alienideology.jcord.internal.gateway.ZlibDecoder} decompresses the binary messages of a connection.
+ *     {@link org.alienideology.jcord.internal.gateway.DispatchFilter} drops the ignored dispatches before they are parsed.
  * </p>
  * @since 0.0.1
  * @author AlienIdeology
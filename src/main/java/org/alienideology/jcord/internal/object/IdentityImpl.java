@@ -1,9 +1,5 @@
 package org.alienideology.jcord.internal.object;
 
-import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.exceptions.UnirestException;
-import com.mashape.unirest.request.HttpRequest;
-import com.neovisionaries.ws.client.WebSocket;
 import com.neovisionaries.ws.client.WebSocketException;
 import com.neovisionaries.ws.client.WebSocketFactory;
 import org.alienideology.jcord.Identity;
@@ -20,12 +16,16 @@ import org.alienideology.jcord.handle.guild.IGuild;
 import org.alienideology.jcord.handle.guild.IRole;
 import org.alienideology.jcord.handle.managers.ISelfManager;
 import org.alienideology.jcord.handle.permission.Permission;
+import org.alienideology.jcord.handle.rest.RequestPriority;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.handle.user.IWebhook;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
 import org.alienideology.jcord.internal.exception.HttpErrorException;
 import org.alienideology.jcord.internal.exception.PermissionException;
+import org.alienideology.jcord.internal.gateway.DispatchFilter;
 import org.alienideology.jcord.internal.gateway.GatewayAdaptor;
+import org.alienideology.jcord.internal.gateway.SessionStore;
+import org.alienideology.jcord.internal.gateway.ShardManager;
 import org.alienideology.jcord.internal.object.bot.Bot;
 import org.alienideology.jcord.internal.object.channel.PrivateChannel;
 import org.alienideology.jcord.internal.object.client.Client;
@@ -36,9 +36,19 @@ import org.alienideology.jcord.internal.object.user.User;
 import org.alienideology.jcord.internal.rest.ErrorResponse;
 import org.alienideology.jcord.internal.rest.HttpCode;
 import org.alienideology.jcord.internal.rest.HttpPath;
+import org.alienideology.jcord.internal.rest.HttpTransport;
+import org.alienideology.jcord.internal.rest.PooledHttpTransport;
+import org.alienideology.jcord.internal.rest.RateLimiter;
+import org.alienideology.jcord.internal.rest.RequestCoalescer;
+import org.alienideology.jcord.internal.rest.RequestQueue;
+import org.alienideology.jcord.internal.rest.ResponseCache;
+import org.alienideology.jcord.internal.rest.RestMetrics;
+import org.alienideology.jcord.internal.rest.RetryPolicy;
 import org.alienideology.jcord.internal.rest.Requester;
+import org.alienideology.jcord.util.log.LogLevel;
 import org.alienideology.jcord.util.log.Logger;
 import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -49,6 +59,11 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author AlienIdeology
@@ -60,9 +75,25 @@ public final class IdentityImpl implements Identity {
     private final IdentityType type;
     private final String token;
 
-    private final WebSocketFactory wsFactory;
-    private GatewayAdaptor gateway;
-    public Connection CONNECTION = Connection.OFFLINE;
+    private final ShardManager shardManager;
+    private int shardCount = 0;
+    private SessionStore sessionStore;
+    private Thread sessionHook;
+    private boolean transportCompression = true;
+    private DispatchFilter dispatchFilter;
+    private HttpTransport transport;
+    /* True if the transport is created by this identity, and shut down when logging out */
+    private boolean ownsTransport = false;
+    private String apiUrl = HttpPath.DISCORD_API_URL;
+    private final RateLimiter rateLimiter;
+    private final RequestCoalescer requestCoalescer;
+    private ResponseCache responseCache;
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private final RestMetrics restMetrics = new RestMetrics();
+    private ThreadPoolExecutor requestExecutor;
+    /* Completed once the guilds of the stored sessions are rebuilt */
+    private volatile CompletableFuture<List<String>> restoring = CompletableFuture.completedFuture(Collections.emptyList());
+    public volatile Connection CONNECTION = Connection.OFFLINE;
 
     private Bot bot;
     private Client client;
@@ -79,8 +110,10 @@ public final class IdentityImpl implements Identity {
     public IdentityImpl(IdentityType type, String token, WebSocketFactory wsFactory, Logger logger) {
         this.type = type;
         this.token = type.equals(IdentityType.CLIENT) ? token : "Bot " + token;
-        this.wsFactory = wsFactory;
+        this.shardManager = new ShardManager(this, wsFactory);
         this.LOG = logger;
+        this.rateLimiter = new RateLimiter(logger.clone("RateLimiter"));
+        this.requestCoalescer = new RequestCoalescer();
         this.manager  = new EventManager();
         this.selfManager = new SelfManager(this);
     }
@@ -159,9 +192,19 @@ public final class IdentityImpl implements Identity {
         return selfModifier;
     }
 
+    @Override
+    public RestMetrics getRestMetrics() {
+        return restMetrics;
+    }
+
+    @Override
+    public ShardManager getShardManager() {
+        return shardManager;
+    }
+
     @Override
     public long getHeartbeatInterval() {
-        return gateway.getInterval();
+        return getGateway().getInterval();
     }
 
     @Override
@@ -403,32 +446,58 @@ public final class IdentityImpl implements Identity {
 
     public IdentityImpl login () throws ErrorResponseException, URISyntaxException, ConnectException {
         String uri;
+        int shards = 1;
+        int maxConcurrency = 1;
 
         if (type.equals(IdentityType.BOT)) {
             try {
-                HttpRequest request = Unirest.get(HttpPath.Gateway.GET_GATEWAY_BOT.getPath())
-                        .header("Authorization", this.token);
-                uri = request.asJson().getBody().getObject().getString("url") + "?encoding=json&v=" + JCord.DISCORD_GATEWAY_VERSION;
-                // TODO: Process shards
-            } catch (UnirestException | JSONException ex) {
+                JSONObject gateway = new Requester(this, HttpPath.Gateway.GET_GATEWAY_BOT).request().getAsJSONObject();
+                uri = gateway.getString("url") + "?encoding=json&v=" + JCord.DISCORD_GATEWAY_VERSION;
+                shards = shardCount > 0 ? shardCount : gateway.optInt("shards", 1);
+                JSONObject limit = gateway.optJSONObject("session_start_limit");
+                if (limit != null) {
+                    maxConcurrency = limit.optInt("max_concurrency", 1);
+                }
+            } catch (HttpErrorException | JSONException ex) {
                 throw new ErrorResponseException(ErrorResponse.INVALID_AUTHENTICATION_TOKEN);
             }
         } else {
             try {
-                HttpRequest request = Unirest.get(HttpPath.Gateway.GET_GATEWAY.getPath())
-                        .header("Authorization", this.token);
-                        // Authentication not require for this endpoint
-                        // But provide the token to make sure
-                uri = request.asJson().getBody().getObject().getString("url") + "?encoding=json&v=" + JCord.DISCORD_GATEWAY_VERSION;
-            } catch (UnirestException | JSONException ex) {
+                // Authentication not require for this endpoint
+                // But provide the token to make sure
+                uri = new Requester(this, HttpPath.Gateway.GET_GATEWAY).request()
+                        .getAsJSONObject().getString("url") + "?encoding=json&v=" + JCord.DISCORD_GATEWAY_VERSION;
+            } catch (HttpErrorException | JSONException ex) {
                 throw new ErrorResponseException(ErrorResponse.INVALID_AUTHENTICATION_TOKEN);
             }
         }
 
+        if (transportCompression) {
+            uri += "&compress=zlib-stream";
+        }
+
+        boolean resume = false;
+        if (sessionStore != null && type.equals(IdentityType.BOT)) {
+            try {
+                if (sessionStore.load(shards)) {
+                    restoring = restoreCache(sessionStore.getGuildIds());
+                    resume = true;
+                }
+            } catch (IOException | RuntimeException ex) {
+                LOG.log(LogLevel.WARN, "Failed to restore the stored sessions, identifying instead.", ex);
+                users.clear();
+                guilds.clear();
+            }
+        }
+
+        if (sessionStore != null && sessionHook == null) {
+            // Logging out saves the sessions and removes the hook
+            sessionHook = new Thread(this::saveSession, "SessionStore");
+            Runtime.getRuntime().addShutdownHook(sessionHook);
+        }
+
         try {
-            URI url = new URI(uri);
-            WebSocket socket = wsFactory.createSocket(url);
-            socket.addListener((gateway = new GatewayAdaptor(this, socket))).connect();
+            shardManager.connect(new URI(uri), shards, maxConcurrency, resume ? sessionStore : null);
         } catch (IllegalArgumentException ex) {
             throw new URISyntaxException(uri, "Discord fail to provide a valid URI!");
         } catch (IOException ex2) {
@@ -437,25 +506,284 @@ public final class IdentityImpl implements Identity {
             throw new ConnectException("Fail to connect to the Discord server!");
         }
 
+        // Resumed sessions receive no guild creates, the requests wait in the send queues until the shards are ready
+        restoring.thenAccept(largeGuilds -> {
+            for (String guildId : largeGuilds) {
+                shardManager.getShardFor(guildId).sendRequestMembers(guildId);
+            }
+        });
+
         return this;
     }
 
     public IdentityImpl logout() {
-        gateway.getSocket().disconnect();
+        // The guilds being rebuilt would be added after the cache is cleared
+        awaitRestore();
+        saveSession();
+        if (sessionHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(sessionHook);
+            } catch (IllegalStateException ex) {
+                // The JVM is already shutting down
+            }
+            sessionHook = null;
+        }
+        shardManager.disconnect(sessionStore != null);
         CONNECTION = Connection.OFFLINE;
+        synchronized (this) {
+            // The next request creates a new transport
+            if (ownsTransport) {
+                transport.shutdown();
+                transport = null;
+                ownsTransport = false;
+            }
+        }
         users.clear();
         guilds.clear();
         privateChannels.clear();
-        gateway.getSocket().clearListeners();
         return this;
     }
 
+    /**
+     * Rebuild the cache of stored sessions, since resumed sessions do not receive the ready event.
+     * The guilds are requested in parallel on the request pool, and built one at a time since the cache is not thread safe.
+     * Login does not wait for the guilds, the shards wait before firing the replayed events instead.
+     *
+     * @param guildIds The ids of the guilds, or null to request the guilds of the identity.
+     * @return The ids of the large guilds, whose members are not all listed over REST, once the guilds are rebuilt.
+     */
+    private CompletableFuture<List<String>> restoreCache(List<String> guildIds) {
+        ObjectBuilder builder = new ObjectBuilder(this);
+        setSelf(builder.buildUser(new Requester(this, HttpPath.Client.GET_USER).request().getAsJSONObject()));
+
+        if (guildIds == null) {
+            guildIds = new ArrayList<>();
+            String after = null;
+            while (true) {
+                final String last = after;
+                JSONArray page = new Requester(this, HttpPath.Client.GET_USER_GUILDS).request()
+                        .updateGetRequest(r -> {
+                            r.queryString("limit", "100");
+                            if (last != null) r.queryString("after", last);
+                        })
+                        .getAsJSONArray();
+                for (int i = 0; i < page.length(); i++) {
+                    guildIds.add(page.getJSONObject(i).getString("id"));
+                }
+                if (page.length() < 100) break;
+                after = guildIds.get(guildIds.size() - 1);
+            }
+        }
+
+        List<String> largeGuilds = new ArrayList<>();
+        CompletableFuture<?>[] rebuilds = new CompletableFuture<?>[guildIds.size()];
+        for (int i = 0; i < rebuilds.length; i++) {
+            String id = guildIds.get(i);
+            rebuilds[i] = CompletableFuture.runAsync(() -> {
+                JSONObject json;
+                JSONArray members;
+                try {
+                    json = new Requester(this, HttpPath.Guild.GET_GUILD).request(id).getAsJSONObject();
+                    json.put("channels", new Requester(this, HttpPath.Guild.GET_GUILD_CHANNELS).request(id).getAsJSONArray());
+                    members = new Requester(this, HttpPath.Guild.LIST_GUILD_MEMBERS).request(id)
+                            .updateGetRequest(r -> r.queryString("limit", "1000")).getAsJSONArray();
+                } catch (RuntimeException ex) {
+                    // The guild was left or deleted, Discord does not replay the events of a guild we are no longer in
+                    LOG.log(LogLevel.DEBUG, "[RESUME] Skipped guild " + id);
+                    return;
+                }
+                synchronized (largeGuilds) {
+                    try {
+                        builder.buildGuild(json, members); // Guild added to identity automatically
+                        if (members.length() > JCord.GUILD_MEMBERS_LARGE_THRESHOLD) {
+                            largeGuilds.add(id);
+                        }
+                    } catch (RuntimeException ex) {
+                        LOG.log(LogLevel.WARN, "[RESUME] Failed to rebuild guild " + id, ex);
+                    }
+                }
+            }, this::executeRestore);
+        }
+
+        return CompletableFuture.allOf(rebuilds).thenApply(v -> {
+            LOG.log(LogLevel.INFO, "[RESUME] Restored " + guilds.size() + " guilds from the session store");
+            return largeGuilds;
+        });
+    }
+
+    private void executeRestore(Runnable task) {
+        try {
+            executeRequest(RequestPriority.BACKGROUND, task);
+        } catch (RejectedExecutionException ex) {
+            // The request pool is full, so rebuild the guild on this thread
+            task.run();
+        }
+    }
+
+    /**
+     * Wait until the cache of the stored sessions is rebuilt, so the events replayed when resuming find their guilds.
+     */
+    public void awaitRestore() {
+        restoring.join();
+    }
+
+    /**
+     * Drop the cache restored for a stored session which failed to resume, and clear the session store.
+     * The shard identifies again, and its ready event builds the guilds, which would otherwise
+     * keep the restored objects since a cached guild is not added again.
+     *
+     * @param shardId The shard whose stored session failed to resume.
+     */
+    public void onRestoreFailed(int shardId) {
+        awaitRestore();
+        LOG.log(LogLevel.WARN, "[RESUME] The stored session of shard " + shardId + " is invalid, rebuilding its cache");
+        guilds.removeIf(guild -> shardManager.getShardId(guild.getId()) == shardId);
+        users.removeIf(user -> !user.equals(self) && guilds.stream().noneMatch(guild -> guild.getMember(user.getId()) != null));
+        if (sessionStore != null) {
+            try {
+                sessionStore.clear();
+            } catch (IOException ex) {
+                LOG.log(LogLevel.WARN, "Failed to clear the session store " + sessionStore.getFile(), ex);
+            }
+        }
+    }
+
+    private void saveSession() {
+        if (sessionStore == null || shardManager.getShardCount() == 0) return;
+        try {
+            sessionStore.save(this);
+        } catch (IOException ex) {
+            LOG.log(LogLevel.ERROR, "Failed to save the sessions to " + sessionStore.getFile(), ex);
+        }
+    }
+
+    /**
+     * Update the connection of this identity from the connections of its shards.
+     * Shards update concurrently, so the last update always sees the latest state of every shard.
+     */
+    public synchronized void updateConnection() {
+        CONNECTION = shardManager.getConnection();
+    }
+
     public IdentityImpl setEventManager(EventManager manager) {
         this.manager = manager;
         this.manager.setIdentity(this);
         return this;
     }
 
+    /**
+     * Set the http transport of this identity. A transport set here is not shut down when logging out,
+     * so it can be shared with other identities.
+     *
+     * @param transport The transport, or null to create a {@link PooledHttpTransport} when it is first used.
+     * @return IdentityImpl for chaining.
+     */
+    public synchronized IdentityImpl setTransport(HttpTransport transport) {
+        if (ownsTransport) {
+            this.transport.shutdown();
+        }
+        this.transport = transport;
+        this.ownsTransport = false;
+        return this;
+    }
+
+    /**
+     * Set the base url of the rest api, used by every request of this identity instead of
+     * {@link HttpPath#DISCORD_API_URL}. The transport is not changed, so it can be shared with other identities.
+     *
+     * @param apiUrl The base url, for example {@code http://127.0.0.1:8080/api/v6}, or null to use Discord.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setApiUrl(String apiUrl) {
+        if (apiUrl == null) {
+            this.apiUrl = HttpPath.DISCORD_API_URL;
+        } else {
+            this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        }
+        return this;
+    }
+
+    /**
+     * Set the compression of the Gateway connection, used by the next connection.
+     *
+     * @param transportCompression True to compress the whole connection as a zlib stream,
+     *                             false to only compress large payloads.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setTransportCompression(boolean transportCompression) {
+        this.transportCompression = transportCompression;
+        return this;
+    }
+
+    /**
+     * Set the dispatch types this identity does not subscribe to.
+     *
+     * @param dispatchFilter The filter, or null to handle every dispatch.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setDispatchFilter(DispatchFilter dispatchFilter) {
+        this.dispatchFilter = dispatchFilter;
+        return this;
+    }
+
+    /**
+     * Set the number of shards, used by the next login.
+     *
+     * @param shardCount The number of shards, or 0 to use the number recommended by Discord.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Set the store of the Gateway sessions. The sessions are saved when logging out or when the JVM shuts down,
+     * and the next login resumes them.
+     *
+     * @param sessionStore The session store, or null to always identify.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setSessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+        return this;
+    }
+
+    public IdentityImpl setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public IdentityImpl setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Set the thread pool used to perform asynchronous rest actions.
+     * Waiting actions are ordered by their {@link org.alienideology.jcord.handle.rest.RequestPriority}.
+     *
+     * @param poolSize The maximum number of threads performing requests at the same time.
+     * @param queueSize The maximum number of requests waiting for a thread. Further requests are rejected.
+     * @return IdentityImpl for chaining.
+     */
+    public IdentityImpl setRequestPool(int poolSize, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new RequestQueue(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "Requester-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+        this.requestExecutor = executor;
+        return this;
+    }
+
     // Wrapper to avoid casting
     public Bot getBot() {
         return bot;
@@ -466,8 +794,76 @@ public final class IdentityImpl implements Identity {
         return client;
     }
 
+    /**
+     * @return The gateway of the first shard, which also receives direct messages.
+     */
     public GatewayAdaptor getGateway() {
-        return gateway;
+        return shardManager.getShard(0);
+    }
+
+    public boolean isTransportCompressed() {
+        return transportCompression;
+    }
+
+    /**
+     * @return The filter of ignored dispatches, or null if every dispatch is handled.
+     */
+    public DispatchFilter getDispatchFilter() {
+        return dispatchFilter;
+    }
+
+    /**
+     * @param type The type of a dispatch, such as {@code PRESENCE_UPDATE}.
+     * @return True if this identity ignores the dispatch, so the cache it updates is not maintained.
+     */
+    public boolean isIgnoring(String type) {
+        DispatchFilter filter = dispatchFilter;
+        return filter != null && filter.isIgnored(type);
+    }
+
+    public synchronized HttpTransport getTransport() {
+        if (transport == null) {
+            transport = new PooledHttpTransport();
+            ownsTransport = true;
+        }
+        return transport;
+    }
+
+    /**
+     * @return The base url of the rest api, which is {@link HttpPath#DISCORD_API_URL} by default.
+     */
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * @return The response cache, or null if responses are not cached.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Perform a task on the request pool, after the waiting tasks of higher priorities.
+     *
+     * @param priority The priority of the task.
+     * @param task The task.
+     * @throws RejectedExecutionException If the request pool is full.
+     */
+    public void executeRequest(RequestPriority priority, Runnable task) {
+        requestExecutor.execute(new RequestQueue.Task(priority, task));
     }
 
     public void setSelf (User selfUser) {
@@ -532,7 +928,7 @@ public final class IdentityImpl implements Identity {
     public String toString() {
         return "IdentityImpl{" +
                 "type=" + type +
-                ", socket=" + gateway.getSocket() +
+                ", shards=" + shardManager.getShardCount() +
                 ", CONNECTION=" + CONNECTION +
                 ", self=" + self +
                 '}';
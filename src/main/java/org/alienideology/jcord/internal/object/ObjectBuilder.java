@@ -1,7 +1,6 @@
 package org.alienideology.jcord.internal.object;
 
 import org.alienideology.jcord.Identity;
-import org.alienideology.jcord.JCord;
 import org.alienideology.jcord.event.ExceptionEvent;
 import org.alienideology.jcord.handle.Region;
 import org.alienideology.jcord.handle.audit.*;
@@ -80,6 +79,17 @@ public final class ObjectBuilder {
 
     // Guild
     public Guild buildGuild (JSONObject json) {
+        return buildGuild(json, null);
+    }
+
+    /**
+     * Build a guild with members that are already requested, such as guilds requested in parallel.
+     *
+     * @param json The guild json.
+     * @param members The members, or null to request them.
+     * @return The guild.
+     */
+    public Guild buildGuild (JSONObject json, JSONArray members) {
         handleBuildError(json);
 
         String id = json.getString("id");
@@ -164,22 +174,18 @@ public final class ObjectBuilder {
             // Build this after roles because members have roles field
             // Members array are only present at Client Ready Event or Guild Create Event, but they are not complete.
             // So we still use http request to get members
-            JSONArray members;
             List<IMember> membersList = new ArrayList<>();
-            try {
-                members = new Requester(identity, HttpPath.Guild.LIST_GUILD_MEMBERS).request(id)
-                        .updateGetRequest(r -> r.queryString("limit", "1000")).getAsJSONArray();
-            } catch (RuntimeException e) {
-                identity.LOG.log(LogLevel.FETAL,"Building guild members. (Guild: "+guild.toString()+")", e);
-                return guild;
+            if (members == null) {
+                try {
+                    members = new Requester(identity, HttpPath.Guild.LIST_GUILD_MEMBERS).request(id)
+                            .updateGetRequest(r -> r.queryString("limit", "1000")).getAsJSONArray();
+                } catch (RuntimeException e) {
+                    identity.LOG.log(LogLevel.FETAL,"Building guild members. (Guild: "+guild.toString()+")", e);
+                    return guild;
+                }
             }
 
-            // Request guild members after the guild and members are built
-            // But I don't think members' length will be larger than threshold
-            // Since discord only send online members for large guild
-            if (members.length() > JCord.GUILD_MEMBERS_LARGE_THRESHOLD) { // Need to request guild members
-                identity.getGateway().sendRequestMembers(json.getString("id"));
-            }
+            // Members of large guilds are requested by GuildCreateEventHandler
 
             for (int i = 0; i < members.length(); i++) {
                 JSONObject member = members.getJSONObject(i);
@@ -1,17 +1,21 @@
 package org.alienideology.jcord.internal.object.channel;
 
+import com.mashape.unirest.request.body.MultipartBody;
 import org.alienideology.jcord.IdentityType;
 import org.alienideology.jcord.handle.audit.AuditAction;
 import org.alienideology.jcord.handle.builders.MessageBuilder;
 import org.alienideology.jcord.handle.channel.IMessageChannel;
 import org.alienideology.jcord.handle.channel.ITextChannel;
 import org.alienideology.jcord.handle.channel.MessageHistory;
+import org.alienideology.jcord.handle.channel.PurgeProgress;
 import org.alienideology.jcord.handle.guild.IGuild;
 import org.alienideology.jcord.handle.guild.IGuildEmoji;
 import org.alienideology.jcord.handle.guild.IMember;
 import org.alienideology.jcord.handle.message.IEmbed;
 import org.alienideology.jcord.handle.message.IMessage;
+import org.alienideology.jcord.handle.message.Upload;
 import org.alienideology.jcord.handle.permission.Permission;
+import org.alienideology.jcord.handle.rest.RestAction;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
 import org.alienideology.jcord.internal.exception.HigherHierarchyException;
@@ -21,11 +25,11 @@ import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.ObjectBuilder;
 import org.alienideology.jcord.internal.object.guild.Guild;
 import org.alienideology.jcord.internal.object.message.Message;
-import org.alienideology.jcord.internal.object.user.User;
 import org.alienideology.jcord.internal.rest.ErrorResponse;
 import org.alienideology.jcord.internal.rest.HttpCode;
 import org.alienideology.jcord.internal.rest.HttpPath;
 import org.alienideology.jcord.internal.rest.Requester;
+import org.alienideology.jcord.internal.rest.UploadBody;
 import org.alienideology.jcord.util.DataUtils;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
@@ -34,8 +38,13 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -87,7 +96,7 @@ public class MessageChannel extends Channel implements IMessageChannel {
 
     @Override
     public IMessage sendMessage(String message) {
-        return send(((Message) new MessageBuilder().setContent(message).build()).toJson());
+        return createMessage(message).complete();
     }
 
     @Override
@@ -97,15 +106,30 @@ public class MessageChannel extends Channel implements IMessageChannel {
 
     @Override
     public IMessage sendMessage(IMessage message) {
-        return send(((Message)message).toJson());
+        return createMessage(message).complete();
     }
 
     @Override
     public IMessage sendMessage(IEmbed embed) {
+        return createMessage(embed).complete();
+    }
+
+    @Override
+    public RestAction<IMessage> createMessage(String message) {
+        return send(((Message) new MessageBuilder().setContent(message).build()).toJson());
+    }
+
+    @Override
+    public RestAction<IMessage> createMessage(IMessage message) {
+        return send(((Message) message).toJson());
+    }
+
+    @Override
+    public RestAction<IMessage> createMessage(IEmbed embed) {
         return send(((Message) new MessageBuilder().setEmbed(embed).build()).toJson());
     }
 
-    private Message send(JSONObject json) {
+    private RestAction<IMessage> send(JSONObject json) {
         checkContentLength(json.getString("content"));
         if (isPrivate && identity.getType() == IdentityType.BOT) { // Cannot send a private message from bot to bot
             throw new ErrorResponseException(ErrorResponse.CANNOT_SEND_MESSAGES_TO_THIS_USER);
@@ -115,15 +139,22 @@ public class MessageChannel extends Channel implements IMessageChannel {
             throw new PermissionException(Permission.ADMINISTRATOR, Permission.SEND_MESSAGES);
         }
 
-        JSONObject msg = new Requester(identity, HttpPath.Channel.CREATE_MESSAGE).request(id)
-                .updateRequestWithBody(http -> http.body(json)).getAsJSONObject();
-        Message message = new ObjectBuilder(identity).buildMessage(msg);
-        return message;
+        return new RestAction<IMessage>(identity, HttpPath.Channel.CREATE_MESSAGE, id) {
+            @Override
+            protected void prepare(Requester requester) {
+                requester.updateRequestWithBody(http -> http.body(json));
+            }
+
+            @Override
+            protected IMessage request(Requester requester) {
+                return new ObjectBuilder(identity).buildMessage(requester.getAsJSONObject());
+            }
+        };
     }
 
     @Override
     public IMessage sendAttachment(File file, String message) throws IOException {
-        return attach(file, ((Message) new MessageBuilder().setContent(message).build()).toJson());
+        return attach(((Message) new MessageBuilder().setContent(message).build()).toJson(), Upload.of(file));
     }
 
     @Override
@@ -133,10 +164,20 @@ public class MessageChannel extends Channel implements IMessageChannel {
 
     @Override
     public IMessage sendAttachment(File file, IMessage message) throws IOException {
-        return attach(file, ((Message) message).toJson());
+        return attach(((Message) message).toJson(), Upload.of(file));
+    }
+
+    @Override
+    public IMessage sendAttachments(String message, Upload... uploads) throws IOException {
+        return attach(((Message) new MessageBuilder().setContent(message).build()).toJson(), uploads);
+    }
+
+    @Override
+    public IMessage sendAttachments(IMessage message, Upload... uploads) throws IOException {
+        return attach(((Message) message).toJson(), uploads);
     }
 
-    private IMessage attach(File file, JSONObject message) throws IOException {
+    private IMessage attach(JSONObject message, Upload... uploads) throws IOException {
         if (type.isPrivate()) {
             if (identity.getType() == IdentityType.BOT) { // Cannot send a private message from bot to bot
                 throw new ErrorResponseException(ErrorResponse.CANNOT_SEND_MESSAGES_TO_THIS_USER);
@@ -151,19 +192,35 @@ public class MessageChannel extends Channel implements IMessageChannel {
             }
         }
 
-        if (!file.exists() || file.isDirectory() || !file.canRead()) {
-            throw new FileNotFoundException("The provided file to send can not be found or read from!");
+        if (uploads.length == 0) {
+            throw new IllegalArgumentException("A message must have at least one attachment to upload!");
         }
 
-        if (file.length() / (1024 ^ 2) > 8) {
-            throw new IllegalArgumentException("The file provided is too large to send!");
+        long size = 0;
+        for (Upload upload : uploads) {
+            File file = upload.getFile();
+            if (file != null && (!file.exists() || file.isDirectory() || !file.canRead())) {
+                throw new FileNotFoundException("The provided file to send can not be found or read from! File: " + file);
+            }
+            if (upload.getSize() > 0) size += upload.getSize();
+        }
+
+        if (size > Upload.MAX_SIZE) {
+            throw new IllegalArgumentException("The files provided are too large to send! Size: " + size + " bytes, " +
+                    "the limit is " + Upload.MAX_SIZE + " bytes.");
         }
 
+        // Uploads of unknown size are limited while they are streamed
+        AtomicLong remaining = new AtomicLong(Upload.MAX_SIZE - size);
+
         // Get the RequestWithBody object, use it to get MultipartBody object (#field)
         JSONObject msg = new Requester(identity, HttpPath.Channel.CREATE_MESSAGE, false)
-                .request(id).updateRequestWithBody(request ->
-                        request.field("file", file, file.getName())
-                            .field("payload_json", message.toString())).getAsJSONObject();
+                .request(id).updateRequestWithBody(request -> {
+                    MultipartBody body = request.field("payload_json", message.toString());
+                    for (int i = 0; i < uploads.length; i++) {
+                        body.field("file" + i, new UploadBody(uploads[i], remaining), true);
+                    }
+                }).getAsJSONObject();
 
         return new ObjectBuilder(identity).buildMessage(msg);
     }
@@ -188,10 +245,17 @@ public class MessageChannel extends Channel implements IMessageChannel {
         return edit(((Message) new MessageBuilder().setEmbed(message).build()).toJson(), messageId);
     }
 
+    @Override
+    public IMessage editMessageUnchecked(String messageId, IMessage message) {
+        JSONObject json = ((Message) message).toJson();
+        checkContentLength(json.getString("content"));
+        return requestEdit(json, messageId);
+    }
+
     private Message edit(JSONObject json, String id) {
         checkContentLength(json.getString("content"));
 
-        User author = (User) new ObjectBuilder(identity).buildMessageById(this.id, id).getAuthor();
+        IUser author = getKnownMessage(id).getAuthor();
 
         if (!isPrivate && !author.isSelf()) {
             // Edit message from other people
@@ -202,6 +266,10 @@ public class MessageChannel extends Channel implements IMessageChannel {
                 throw new PermissionException("Can not edit a message sent by the server owner!");
         }
 
+        return requestEdit(json, id);
+    }
+
+    private Message requestEdit(JSONObject json, String id) {
         // The MessageUpdateEvent get fired by this, but will be ignored
         JSONObject msg = new Requester(identity, HttpPath.Channel.EDIT_MESSAGE).request(this.id, id)
                 .updateRequestWithBody(http -> http.header("Content-Type", "application/json").body(json)).getAsJSONObject();
@@ -209,6 +277,14 @@ public class MessageChannel extends Channel implements IMessageChannel {
         return edited;
     }
 
+    /**
+     * Get a message from the history cache, only request it if it is not cached.
+     */
+    private IMessage getKnownMessage(String id) {
+        IMessage message = getHistory().getCachedMessages().get(id);
+        return message != null ? message : new ObjectBuilder(identity).buildMessageById(this.id, id);
+    }
+
     private void checkContentLength(String content) {
         if (content.length() > IMessage.CONTENT_LENGTH_MAX) {  // Message content can by up to 2000 characters
             IllegalArgumentException exception = new IllegalArgumentException("String messages can only contains up to 2000 characters.");
@@ -219,17 +295,21 @@ public class MessageChannel extends Channel implements IMessageChannel {
 
     @Override
     public AuditAction<IMessage> deleteMessage(String messageId) {
-        return delete(messageId);
+        return delete(getKnownMessage(messageId));
     }
 
     @Override
     public AuditAction<IMessage> deleteMessage(IMessage message) {
-        return delete(message.getId());
+        return delete(message);
+    }
+
+    @Override
+    public AuditAction<IMessage> deleteMessageUnchecked(String messageId) {
+        return requestDelete(messageId, getHistory().getCachedMessages().get(messageId));
     }
 
-    private AuditAction<IMessage> delete(String id) {
-        IUser author = new ObjectBuilder(identity).buildMessageById(this.id, id).getAuthor();
-        if (!author.isSelf()) {  // Delete a message from others
+    private AuditAction<IMessage> delete(IMessage message) {
+        if (!message.getAuthor().isSelf()) {  // Delete a message from others
             if (isPrivate) {
                 throw new IllegalArgumentException("Cannot delete the recipient's message in a PrivateChannel or Group!");
             } else if (!((ITextChannel)this).hasPermission(getGuild().getSelfMember(), Permission.ADMINISTRATOR, Permission.MANAGE_MESSAGES)) {
@@ -237,28 +317,30 @@ public class MessageChannel extends Channel implements IMessageChannel {
             }
         }
 
+        return requestDelete(message.getId(), message);
+    }
+
+    private AuditAction<IMessage> requestDelete(String id, IMessage message) {
         return new AuditAction<IMessage>(identity, HttpPath.Channel.DELETE_MESSAGE, this.id, id) {
             @Override
             protected IMessage request(Requester requester) {
-                JSONObject msg = requester.getAsJSONObject();
-                return new ObjectBuilder(identity).buildMessage(msg);
+                // Discord returns no content
+                requester.performRequest();
+                return message;
             }
         };
     }
 
     @Override
     public void bulkDeleteMessages(boolean throwEx, List<IMessage> messages) {
-        if (isPrivate) {
-            throw new IllegalArgumentException("Cannot bulk delete messages in a PrivateChannel!");
-        } else if (!((ITextChannel)this).hasPermission(getGuild().getSelfMember(), Permission.ADMINISTRATOR, Permission.MANAGE_MESSAGES)) {
-            throw new PermissionException(Permission.ADMINISTRATOR, Permission.MANAGE_MESSAGES);
-        }
+        checkPurge();
         if (messages.isEmpty()) {
             throw new IllegalArgumentException("A list of messages to delete may not be empty!");
         }
 
         // Throw Exceptions
         if (throwEx) {
+            OffsetDateTime limit = OffsetDateTime.now().minusWeeks(2);
             for (IMessage message : messages) {
                 // Check if the message is from this channel
                 if (!message.getChannel().equals(this)) {
@@ -266,17 +348,42 @@ public class MessageChannel extends Channel implements IMessageChannel {
                 }
 
                 // Check if message is older than 2 weeks
-                if (message.getCreatedTime().isBefore(message.getCreatedTime().minusWeeks(2))) {
+                if (message.getCreatedTime().isBefore(limit)) {
                     throw new IllegalArgumentException("Cannot delete messages older than two weeks!");
                 }
             }
         }
 
-        List<String> ids = messages.isEmpty() ? new ArrayList<>() : messages.stream().map(IMessage::getId).collect(Collectors.toList());
+        List<String> ids = messages.stream().map(IMessage::getId).collect(Collectors.toList());
 
-        new Requester(identity, HttpPath.Channel.BULK_DELETE_MESSAGE).request(this.id)
-                .updateRequestWithBody(request -> request.body(new JSONObject().put("messages", ids)))
-                .performRequest();
+        MessagePurger purger = new MessagePurger(this, null);
+        purger.purge(ids);
+        if (purger.getFailure() != null) {
+            throw purger.getFailure();
+        }
+    }
+
+    @Override
+    public CompletableFuture<PurgeProgress> purgeMessages(Collection<String> messageIds, @Nullable Consumer<PurgeProgress> progress) {
+        checkPurge();
+        return MessagePurger.submit(() -> new MessagePurger(this, progress).purge(messageIds));
+    }
+
+    @Override
+    public CompletableFuture<PurgeProgress> purgeMessages(@Nullable String afterId, @Nullable String beforeId, @Nullable Consumer<PurgeProgress> progress) {
+        checkPurge();
+        if (!((ITextChannel)this).hasPermission(getGuild().getSelfMember(), Permission.ADMINISTRATOR, Permission.READ_MESSAGE_HISTORY)) {
+            throw new PermissionException(Permission.ADMINISTRATOR, Permission.READ_MESSAGE_HISTORY);
+        }
+        return MessagePurger.submit(() -> new MessagePurger(this, progress).purgeRange(afterId, beforeId));
+    }
+
+    private void checkPurge() {
+        if (isPrivate) {
+            throw new IllegalArgumentException("Cannot bulk delete messages in a PrivateChannel!");
+        } else if (!((ITextChannel)this).hasPermission(getGuild().getSelfMember(), Permission.ADMINISTRATOR, Permission.MANAGE_MESSAGES)) {
+            throw new PermissionException(Permission.ADMINISTRATOR, Permission.MANAGE_MESSAGES);
+        }
     }
 
     @Override
@@ -0,0 +1,235 @@
+package org.alienideology.jcord.internal.object.channel;
+
+import org.alienideology.jcord.handle.channel.PurgeProgress;
+import org.alienideology.jcord.handle.rest.RequestPriority;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.rest.HttpPath;
+import org.alienideology.jcord.internal.rest.Requester;
+import org.alienideology.jcord.util.DataUtils;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * MessagePurger - Deletes any number of messages in a channel.
+ *
+ * Messages younger than two weeks are bulk deleted in batches of 2 to 100 messages,
+ * the older messages are deleted one by one, since Discord does not bulk delete them.
+ * Every request waits for the channel's rate limit buckets, so purges of different channels run in parallel.
+ * Asynchronous purges run on their own pool of {@link #THREADS} threads, since they wait on the rate limits
+ * for as long as they run, and would otherwise hold the threads of the identity's request pool.
+ * Further purges wait until a thread is free.
+ *
+ * @author AlienIdeology
+ */
+final class MessagePurger {
+
+    static final int BULK_DELETE_MAX = 100;
+    /* Two weeks, with a margin for the clock difference and the time spent waiting */
+    static final long BULK_DELETE_AGE = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(5);
+
+    /* The maximum number of asynchronous purges running at once */
+    static final int THREADS = 4;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "MessagePurger-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final MessageChannel channel;
+    private final IdentityImpl identity;
+    private final Consumer<PurgeProgress> listener;
+
+    private int total = 0;
+    private int deleted = 0;
+    private int failed = 0;
+    private RuntimeException failure;
+
+    MessagePurger(MessageChannel channel, Consumer<PurgeProgress> listener) {
+        this.channel = channel;
+        this.identity = channel.getIdentity();
+        this.listener = listener;
+    }
+
+    /**
+     * Run a purge asynchronously.
+     *
+     * @param purge The purge.
+     * @return The future of the final progress.
+     */
+    static CompletableFuture<PurgeProgress> submit(Supplier<PurgeProgress> purge) {
+        CompletableFuture<PurgeProgress> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                future.complete(purge.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Purge messages by id.
+     *
+     * @param messageIds The ids of the messages.
+     * @return The final progress.
+     */
+    PurgeProgress purge(Collection<String> messageIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(messageIds));
+        total = ids.size();
+        delete(ids);
+        return finish();
+    }
+
+    /**
+     * Purge the messages between two messages, exclusively.
+     * The history is fetched page by page from the newest message, and each page is deleted before the next one is fetched.
+     *
+     * @param afterId The id of the oldest message to keep, or null to purge the history from the beginning.
+     * @param beforeId The id of the newest message to keep, or null to purge the history to the latest message.
+     * @return The final progress.
+     */
+    PurgeProgress purgeRange(String afterId, String beforeId) {
+        long after = afterId == null ? 0 : Long.parseLong(afterId);
+        String before = beforeId;
+
+        while (true) {
+            Requester requester = before == null
+                    ? new Requester(identity, HttpPath.Channel.GET_CHANNEL_MESSAGES)
+                        .request(channel.getId(), String.valueOf(BULK_DELETE_MAX))
+                    : new Requester(identity, HttpPath.Channel.GET_CHANNEL_MESSAGES_BEFORE)
+                        .request(channel.getId(), String.valueOf(BULK_DELETE_MAX), before);
+            JSONArray page = requester.setPriority(RequestPriority.MODERATION).getAsJSONArray();
+
+            List<String> ids = new ArrayList<>();
+            boolean reachedEnd = page.length() < BULK_DELETE_MAX;
+            for (int i = 0; i < page.length(); i++) {
+                String id = page.getJSONObject(i).getString("id");
+                if (Long.parseLong(id) <= after) {
+                    reachedEnd = true;
+                    break;
+                }
+                ids.add(id);
+            }
+
+            total += ids.size();
+            delete(ids);
+
+            if (reachedEnd || ids.isEmpty()) break;
+            before = ids.get(ids.size() - 1);
+        }
+        return finish();
+    }
+
+    /**
+     * @return The first exception thrown while deleting messages, or null if every message was deleted.
+     */
+    RuntimeException getFailure() {
+        return failure;
+    }
+
+    private void delete(List<String> ids) {
+        for (List<String> batch : getBatches(ids, System.currentTimeMillis())) {
+            if (batch.size() == 1) {
+                deleteSingle(batch.get(0));
+            } else {
+                deleteBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Split messages into the requests that delete them.
+     *
+     * @param ids The ids of the messages.
+     * @param now The current time in milliseconds.
+     * @return The batches of 2 to 100 messages to bulk delete, and the messages to delete one by one in batches of one.
+     */
+    static List<List<String>> getBatches(List<String> ids, long now) {
+        List<String> young = new ArrayList<>();
+        List<String> old = new ArrayList<>();
+        for (String id : ids) {
+            long created = DataUtils.getSnowflakeTime(id);
+            (now - created < BULK_DELETE_AGE ? young : old).add(id);
+        }
+
+        // Bulk delete requires at least 2 messages, a single young message is deleted by itself
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < young.size(); from += BULK_DELETE_MAX) {
+            batches.add(young.subList(from, Math.min(from + BULK_DELETE_MAX, young.size())));
+        }
+        for (String id : old) {
+            batches.add(Collections.singletonList(id));
+        }
+        return batches;
+    }
+
+    private void deleteBatch(List<String> batch) {
+        try {
+            new Requester(identity, HttpPath.Channel.BULK_DELETE_MESSAGE).setPriority(RequestPriority.MODERATION)
+                    .request(channel.getId())
+                    .updateRequestWithBody(request -> request.body(new JSONObject().put("messages", batch)))
+                    .performRequest();
+            deleted += batch.size();
+        } catch (RuntimeException ex) {
+            fail(ex, batch.size());
+        }
+        report(false);
+    }
+
+    private void deleteSingle(String id) {
+        try {
+            new Requester(identity, HttpPath.Channel.DELETE_MESSAGE).setPriority(RequestPriority.MODERATION)
+                    .request(channel.getId(), id).performRequest();
+            deleted++;
+        } catch (RuntimeException ex) {
+            fail(ex, 1);
+        }
+        report(false);
+    }
+
+    private void fail(RuntimeException ex, int count) {
+        failed += count;
+        if (failure == null) failure = ex;
+        identity.LOG.log(LogLevel.WARN, "Failed to delete " + count + " message(s) in channel " + channel.getId() + ": " + ex.getMessage());
+    }
+
+    private PurgeProgress finish() {
+        return report(true);
+    }
+
+    private PurgeProgress report(boolean done) {
+        PurgeProgress progress = new PurgeProgress(channel, total, deleted, failed, done);
+        if (listener != null) {
+            try {
+                listener.accept(progress);
+            } catch (RuntimeException ex) {
+                identity.LOG.log(LogLevel.ERROR, "Exception thrown by a purge progress listener!", ex);
+            }
+        }
+        return progress;
+    }
+
+}
@@ -11,6 +11,7 @@ import org.alienideology.jcord.handle.guild.IMember;
 import org.alienideology.jcord.handle.guild.IRole;
 import org.alienideology.jcord.handle.managers.IGuildManager;
 import org.alienideology.jcord.handle.permission.Permission;
+import org.alienideology.jcord.handle.rest.RequestPriority;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
 import org.alienideology.jcord.internal.exception.HigherHierarchyException;
@@ -206,7 +207,7 @@ public final class GuildManager implements IGuildManager {
                     HttpCode code = requester.performRequest();
                     return code.isOK() || code.isSuccess();
                 }
-            };
+            }.setPriority(RequestPriority.MODERATION);
         } catch (HttpErrorException ex) {
             if (ex.isPermissionException()) {
                 throw new PermissionException(Permission.ADMINISTRATOR, Permission.KICK_MEMBERS);
@@ -330,7 +331,7 @@ public final class GuildManager implements IGuildManager {
                              .performRequest();
                      return code.isOK() || code.isSuccess();
                  }
-             };
+             }.setPriority(RequestPriority.MODERATION);
         } catch (HttpErrorException ex) {
             if (ex.isPermissionException()) { // Missing Permission
                 throw new PermissionException(Permission.ADMINISTRATOR, Permission.BAN_MEMBERS);
@@ -361,7 +362,7 @@ public final class GuildManager implements IGuildManager {
                     HttpCode code = requester.performRequest();
                     return code.isOK() || code.isSuccess();
                 }
-            };
+            }.setPriority(RequestPriority.MODERATION);
         } catch (HttpErrorException ex) {
             if (ex.isPermissionException()) { // Missing Permission
                 throw new PermissionException(Permission.ADMINISTRATOR, Permission.BAN_MEMBERS);
@@ -40,7 +40,7 @@ public final class SelfManager extends DiscordObject implements ISelfManager {
             content.put("game", ((Game) game).toJson());
         }
 
-        identity.getGateway().send(OPCode.STATUS_UPDATE, content);
+        identity.getShardManager().sendToAll(OPCode.STATUS_UPDATE, content);
     }
 
     @Override
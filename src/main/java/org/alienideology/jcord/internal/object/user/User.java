@@ -6,6 +6,7 @@ import org.alienideology.jcord.handle.user.IPresence;
 import org.alienideology.jcord.handle.user.IUser;
 import org.alienideology.jcord.handle.user.OnlineStatus;
 import org.alienideology.jcord.internal.object.DiscordObject;
+import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.internal.object.ObjectBuilder;
 import org.alienideology.jcord.internal.object.channel.PrivateChannel;
 import org.alienideology.jcord.internal.rest.HttpPath;
@@ -37,8 +38,10 @@ public class User extends DiscordObject implements IUser {
     public User (Identity identity, String id) {
         super(identity);
         this.id = id;
+        // Presences are unknown when their updates are ignored
         this.presence = new Presence(identity, this)
-                .setStatus(OnlineStatus.ONLINE);
+                .setStatus(identity instanceof IdentityImpl && ((IdentityImpl) identity).isIgnoring("PRESENCE_UPDATE") ?
+                        OnlineStatus.UNKNOWN : OnlineStatus.ONLINE);
     }
 
     @Override
@@ -3,11 +3,17 @@ package org.alienideology.jcord.internal.rest;
 import com.mashape.unirest.http.HttpMethod;
 import org.alienideology.jcord.JCord;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.mashape.unirest.http.HttpMethod.*;
 
 /**
  * HttpPath - Used to set HttpRequest Paths and request them.
  *
+ * Each path is compiled once into literal segments and parameter slots,
+ * so completing a path with parameters does not need to parse the template again.
+ *
  * @author AlienIdeology
  */
 // TODO: Implements all endpoints
@@ -310,11 +316,67 @@ public final class HttpPath {
     }
 
     private final HttpMethod method;
-    private String path;
+    private final String path;
+
+    /* Compiled Template */
+    private final String[] segments; // Literal segments, one more than the parameters
+    private final String[] parameters; // Parameter names
+    private final int[] majorParameters; // Indexes of the major parameters
+    private final String route;
 
     public HttpPath(HttpMethod method, String path) {
         this.method = method;
         this.path = DISCORD_API_URL + path;
+
+        List<String> segments = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        List<Integer> majors = new ArrayList<>();
+        int query = this.path.indexOf('?');
+        int last = 0;
+        int start;
+        while ((start = this.path.indexOf('{', last)) != -1) {
+            int end = this.path.indexOf('}', start);
+            if (end == -1) break;
+            String name = this.path.substring(start + 1, end);
+            segments.add(this.path.substring(last, start));
+            if (isMajorParameter(name) && (query == -1 || start < query)) {
+                majors.add(parameters.size());
+            }
+            parameters.add(name);
+            last = end + 1;
+        }
+        segments.add(this.path.substring(last));
+
+        this.segments = segments.toArray(new String[segments.size()]);
+        this.parameters = parameters.toArray(new String[parameters.size()]);
+        this.majorParameters = majors.stream().mapToInt(Integer::intValue).toArray();
+        this.route = method + " " + (query == -1 ? this.path : this.path.substring(0, query));
+    }
+
+    /**
+     * Complete this path with parameters.
+     *
+     * @param params The parameters, in the same order as they appear in the path.
+     * @return The completed path.
+     * @exception IllegalArgumentException If the number of parameters does not match this path.
+     */
+    public String compile(Object... params) {
+        if (params.length != parameters.length) {
+            throw new IllegalArgumentException("[INTERNAL] Cannot perform an HttpRequest due to unmatched parameters! " +
+                    "(Path: " + path + " | Expected: " + parameters.length + " | Provided: " + params.length + ")");
+        }
+        if (params.length == 0) return path;
+
+        int length = path.length();
+        for (Object param : params) {
+            length += String.valueOf(param).length();
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < params.length; i++) {
+            builder.append(segments[i]).append(params[i]);
+        }
+        return builder.append(segments[params.length]).toString();
     }
 
     public HttpMethod getMethod() {
@@ -325,6 +387,53 @@ public final class HttpPath {
         return path;
     }
 
+    /**
+     * Get the number of parameters this path requires.
+     *
+     * @return The number of parameters.
+     */
+    public int getParameterCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Get the route of this path, which is the http method and the path without queries.
+     * This is used as the key of rate limit buckets.
+     *
+     * @return The route.
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * Get the major parameters (channel id, guild id and webhook id) of this path.
+     * Requests of the same route with different major parameters have separate rate limits.
+     *
+     * @param params The parameters to complete the path.
+     * @return The major parameters joined by a colon, or an empty string if there are no major parameters.
+     */
+    public String getMajorParameters(Object... params) {
+        if (majorParameters.length == 0) return "";
+        if (majorParameters.length == 1) {
+            return majorParameters[0] < params.length ? String.valueOf(params[majorParameters[0]]) : "";
+        }
+
+        StringBuilder major = new StringBuilder();
+        for (int index : majorParameters) {
+            if (index >= params.length) break;
+            if (major.length() > 0) major.append(':');
+            major.append(params[index]);
+        }
+        return major.toString();
+    }
+
+    private static boolean isMajorParameter(String name) {
+        return name.equals("channel.id") || name.equals("channel_id") ||
+                name.equals("guild.id") || name.equals("guild_id") ||
+                name.equals("webhook.id");
+    }
+
     @Override
     public String toString() {
         return "HttpPath{" +
@@ -0,0 +1,51 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.HttpRequest;
+import org.apache.http.client.config.RequestConfig;
+
+/**
+ * HttpTransport - The connection used to send http requests of an identity.
+ *
+ * The default implementation is {@link PooledHttpTransport}.
+ * A custom transport can be set by {@link org.alienideology.jcord.IdentityBuilder#setHttpTransport(HttpTransport)},
+ * for example to send requests to a local server instead of Discord.
+ *
+ * @author AlienIdeology
+ */
+public interface HttpTransport {
+
+    /**
+     * Send a http request and wait for its response.
+     *
+     * @param request The request, built by {@link Requester}.
+     * @param responseClass The type of the response body, which is either
+     *                      {@link com.mashape.unirest.http.JsonNode}, {@link String} or {@link java.io.InputStream}.
+     * @param <T> The type of the response body.
+     * @return The response.
+     * @throws UnirestException If the request failed without a response.
+     */
+    <T> HttpResponse<T> execute(HttpRequest request, Class<T> responseClass) throws UnirestException;
+
+    /**
+     * Send a http request with its own configuration, such as the timeouts of a large upload.
+     * Transports that cannot configure a single request use their defaults.
+     *
+     * @param request The request, built by {@link Requester}.
+     * @param responseClass The type of the response body.
+     * @param config The configuration of this request, or null to use the defaults of the transport.
+     * @param <T> The type of the response body.
+     * @return The response.
+     * @throws UnirestException If the request failed without a response.
+     */
+    default <T> HttpResponse<T> execute(HttpRequest request, Class<T> responseClass, RequestConfig config) throws UnirestException {
+        return execute(request, responseClass);
+    }
+
+    /**
+     * Close all connections of this transport.
+     */
+    void shutdown();
+
+}
@@ -0,0 +1,141 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.HttpRequest;
+import org.alienideology.jcord.JCord;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PooledHttpTransport - The default {@link HttpTransport}, which keeps a pool of keep-alive connections.
+ *
+ * Connections are reused across requests of the same identity, and idle connections are closed after 60 seconds.
+ * Every request is bounded by the connect timeout, the socket (read) timeout,
+ * and the time waiting for a connection from the pool. A request can override them by its own {@link RequestConfig},
+ * usually a copy of {@link #getDefaultRequestConfig()}.
+ *
+ * @author AlienIdeology
+ */
+public class PooledHttpTransport implements HttpTransport {
+
+    private static PooledHttpTransport defaultTransport;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final RequestConfig defaultConfig;
+
+    /**
+     * Default constructor, with up to 20 connections to Discord,
+     * a connect timeout of 10 seconds and a socket timeout of 60 seconds.
+     */
+    public PooledHttpTransport() {
+        this(20, 20, 10_000, 60_000);
+    }
+
+    /**
+     * Constructor for a customized connection pool.
+     *
+     * @param maxConnections The maximum number of open connections.
+     * @param maxConnectionsPerHost The maximum number of open connections to the same host.
+     * @param connectTimeout The timeout in milliseconds to establish a connection, and to get a connection from the pool.
+     * @param socketTimeout The timeout in milliseconds to wait for data from the server.
+     */
+    public PooledHttpTransport(int maxConnections, int maxConnectionsPerHost, int connectTimeout, int socketTimeout) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("The maximum number of connections must be positive!");
+        }
+        this.connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+        this.defaultConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .build();
+        this.client = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setUserAgent(JCord.USER_AGENT)
+                .setDefaultRequestConfig(defaultConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Get the transport shared by requests without an identity, such as OAuth requests.
+     *
+     * @return The default transport.
+     */
+    public static synchronized PooledHttpTransport getDefault() {
+        if (defaultTransport == null) {
+            defaultTransport = new PooledHttpTransport();
+        }
+        return defaultTransport;
+    }
+
+    @Override
+    public <T> HttpResponse<T> execute(HttpRequest request, Class<T> responseClass) throws UnirestException {
+        return execute(request, responseClass, null);
+    }
+
+    @Override
+    public <T> HttpResponse<T> execute(HttpRequest request, Class<T> responseClass, RequestConfig config) throws UnirestException {
+        RequestBuilder builder = RequestBuilder.create(request.getHttpMethod().name())
+                .setUri(request.getUrl());
+        if (config != null) {
+            builder.setConfig(config);
+        }
+
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                builder.addHeader(header.getKey(), value);
+            }
+        }
+
+        if (request.getBody() != null) {
+            builder.setEntity(request.getBody().getEntity());
+        }
+
+        try (CloseableHttpResponse response = client.execute(builder.build())) {
+            // The body is consumed here, which releases the connection back to the pool
+            return new HttpResponse<>(response, responseClass);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+        }
+        connectionManager.shutdown();
+    }
+
+    /**
+     * @return The timeouts of requests without their own configuration.
+     */
+    public RequestConfig getDefaultRequestConfig() {
+        return defaultConfig;
+    }
+
+    /**
+     * @return The number of open connections, which are either leased or idle in the pool.
+     */
+    public int getOpenConnections() {
+        return connectionManager.getTotalStats().getLeased() + connectionManager.getTotalStats().getAvailable();
+    }
+
+}
@@ -0,0 +1,403 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.Headers;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import org.alienideology.jcord.handle.rest.RequestPriority;
+import org.alienideology.jcord.internal.exception.RateLimitException;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.alienideology.jcord.util.log.Logger;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RateLimiter - Tracks the rate limit buckets of the Rest API.
+ *
+ * Each route is limited by its major parameters (channel id, guild id and webhook id).
+ * A request waits in its bucket's queue until the bucket has requests remaining,
+ * so requests that are known to be rejected are never sent. Waiting requests are ordered by their priority.
+ *
+ * The rate limiter is shared by all requests of an identity. When Discord returns a global rate limit,
+ * every outgoing request is held until the global limit resets, then resumed in the order they arrived.
+ *
+ * @author AlienIdeology
+ */
+public final class RateLimiter {
+
+    /**
+     * The time in milliseconds until a bucket resets, if the response does not tell when it resets.
+     */
+    public static final long DEFAULT_RESET = 1000;
+
+    public final Logger LOG;
+
+    /* <Route + Major Parameters, Bucket> */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    /* <Route, Bucket Hash from X-RateLimit-Bucket> */
+    private final Map<String, String> routeHashes = new ConcurrentHashMap<>();
+
+    /* Global Rate Limit */
+    private final Queue<Object> globalQueue = new ArrayDeque<>();
+    private volatile long globalResetAt = 0;
+
+    public RateLimiter(Logger logger) {
+        this.LOG = logger;
+    }
+
+    /**
+     * Get the bucket of a route.
+     *
+     * @param route The route, which is the http method and the path without parameters.
+     * @param major The major parameters of this request.
+     * @return The bucket, never null.
+     */
+    public Bucket getBucket(String route, String major) {
+        String key = getKey(route, major);
+        String hash = routeHashes.get(route);
+        if (hash == null) {
+            return buckets.computeIfAbsent(key, Bucket::new);
+        }
+
+        Bucket bucket = buckets.get(hash + "|" + major);
+        if (bucket == null) {
+            // The bucket used before the hash was learned keeps its waiters and state under the hash
+            Bucket routeBucket = buckets.computeIfAbsent(key, Bucket::new);
+            bucket = buckets.putIfAbsent(hash + "|" + major, routeBucket);
+            if (bucket == null) {
+                bucket = routeBucket;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Get the key of a route's bucket, before the bucket hash of the route is known.
+     *
+     * @param route The route, which is the http method and the path without parameters.
+     * @param major The major parameters of a request.
+     * @return The key.
+     */
+    public static String getKey(String route, String major) {
+        return route + "|" + major;
+    }
+
+    /**
+     * Block until the global rate limit, if any, resets.
+     * Requests that are held by the global rate limit are resumed in the order they arrived.
+     *
+     * @exception RateLimitException If the thread is interrupted while waiting.
+     */
+    public void awaitGlobal() {
+        if (globalResetAt <= System.currentTimeMillis()) {
+            synchronized (globalQueue) {
+                if (globalQueue.isEmpty()) return;
+            }
+        }
+
+        final Object ticket = new Object();
+        synchronized (globalQueue) {
+            globalQueue.add(ticket);
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    if (globalQueue.peek() != ticket) {
+                        globalQueue.wait();
+                    } else if (now < globalResetAt) {
+                        globalQueue.wait(globalResetAt - now);
+                    } else {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitException("Interrupted while waiting for the global rate limit");
+            } finally {
+                globalQueue.remove(ticket);
+                globalQueue.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return True if every request is currently held by a global rate limit.
+     */
+    public boolean isGlobalRateLimited() {
+        return globalResetAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Update the bucket by a response's rate limit headers.
+     *
+     * @param route The route of the request.
+     * @param bucket The bucket the request was sent from.
+     * @param response The response.
+     * @return False if the request was rate limited and should be sent again.
+     */
+    public boolean update(String route, Bucket bucket, HttpResponse<?> response) {
+        final Headers headers = response.getHeaders();
+        final long now = System.currentTimeMillis();
+
+        String hash = getHeader(headers, "X-RateLimit-Bucket");
+        if (hash != null) {
+            routeHashes.putIfAbsent(route, hash);
+        }
+
+        if (response.getStatus() == HttpCode.TOO_MANY_REQUESTS.key) {
+            long retryAfter = parseLong(getHeader(headers, "Retry-After"), 1000L); // In milliseconds
+            if (isGlobal(response)) {
+                LOG.log(LogLevel.WARN, "You are being globally rate limited! All requests are held until the limit resets.\n" +
+                        "(Retry after: " + retryAfter + " ms)");
+                synchronized (globalQueue) {
+                    globalResetAt = Math.max(globalResetAt, now + retryAfter);
+                    globalQueue.notifyAll();
+                }
+                bucket.release();
+                return false;
+            }
+            LOG.log(LogLevel.WARN, "You are being rate limited! The request is queued until the bucket resets.\n" +
+                    "(Bucket: " + bucket.getKey() + " | Retry after: " + retryAfter + " ms)");
+            bucket.rateLimited(now + retryAfter);
+            return false;
+        }
+
+        String limit = getHeader(headers, "X-RateLimit-Limit");
+        String remaining = getHeader(headers, "X-RateLimit-Remaining");
+        if (limit == null || remaining == null) {
+            if (response.getStatus() >= 500) {
+                // Server errors may come without rate limit headers, keep what we know about the bucket
+                bucket.release();
+            } else {
+                // This route is not rate limited
+                bucket.update(0, -1, 0);
+            }
+            return true;
+        }
+
+        long resetAt = now + DEFAULT_RESET;
+        String resetAfter = getHeader(headers, "X-RateLimit-Reset-After");
+        String reset = getHeader(headers, "X-RateLimit-Reset");
+        try {
+            if (resetAfter != null) {
+                resetAt = now + (long) (Double.parseDouble(resetAfter) * 1000);
+            } else if (reset != null) {
+                // Epoch seconds of the server clock, converted to local time by the Date header
+                resetAt = now + ((long) (Double.parseDouble(reset) * 1000) - getServerTime(headers, now));
+            }
+        } catch (NumberFormatException ex) {
+            LOG.log(LogLevel.DEBUG, "Invalid rate limit reset: " + (resetAfter != null ? resetAfter : reset));
+        }
+
+        bucket.update(parseLong(limit, 1), parseLong(remaining, 0), resetAt);
+        return true;
+    }
+
+    private boolean isGlobal(HttpResponse<?> response) {
+        if (Boolean.parseBoolean(getHeader(response.getHeaders(), "X-RateLimit-Global"))) {
+            return true;
+        }
+        Object body = response.getBody();
+        return body instanceof JsonNode && !((JsonNode) body).isArray()
+                && ((JsonNode) body).getObject().optBoolean("global", false);
+    }
+
+    private long getServerTime(Headers headers, long fallback) {
+        String date = getHeader(headers, "Date");
+        if (date == null) return fallback;
+        try {
+            return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            return fallback;
+        }
+    }
+
+    private long parseLong(String value, long fallback) {
+        if (value == null) return fallback;
+        try {
+            return (long) Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Unirest headers are case sensitive, while http headers are not.
+     */
+    static String getHeader(Headers headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)) {
+                List<String> values = entry.getValue();
+                return values == null || values.isEmpty() ? null : values.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bucket - A rate limit bucket shared by the requests of a route with the same major parameters.
+     */
+    public static final class Bucket {
+
+        private final String key;
+        /* Ordered by the priority deadline, then by arrival */
+        private final Queue<Ticket> queue = new PriorityQueue<>();
+        private long sequence = 0;
+
+        /* -1 if unknown, 0 if not limited */
+        private long limit = -1;
+        private long remaining = -1;
+        private long resetAt = 0;
+
+        /* The limit is unknown until the first response arrives */
+        private boolean pending = false;
+
+        Bucket(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Block until this bucket has a request remaining.
+         * Requests are sent in the order they are queued.
+         *
+         * @exception RateLimitException If the thread is interrupted while waiting.
+         */
+        public void acquire() {
+            acquire(RequestPriority.INTERACTIVE);
+        }
+
+        /**
+         * Block until this bucket has a request remaining.
+         * Requests are sent in the order of their priority, see {@link RequestPriority}.
+         *
+         * @param priority The priority of the request.
+         * @exception RateLimitException If the thread is interrupted while waiting.
+         */
+        public synchronized void acquire(RequestPriority priority) {
+            final Ticket ticket = new Ticket(System.currentTimeMillis() + priority.delay, sequence++);
+            queue.add(ticket);
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    if (queue.peek() != ticket || pending) {
+                        wait();
+                    } else if (remaining == 0 && now < resetAt) {
+                        wait(resetAt - now);
+                    } else if (limit == -1) {
+                        // Unknown limit, only send one request to learn about it
+                        pending = true;
+                        return;
+                    } else if (limit == 0) {
+                        // Not limited
+                        return;
+                    } else {
+                        if (now >= resetAt) {
+                            // A new window, the first request learns about the next reset time
+                            remaining = limit;
+                            pending = true;
+                        }
+                        remaining--;
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitException("Interrupted while waiting for rate limit bucket " + key);
+            } finally {
+                queue.remove(ticket);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Release the bucket if the request failed without a response.
+         */
+        public synchronized void release() {
+            pending = false;
+            notifyAll();
+        }
+
+        synchronized void rateLimited(long resetAt) {
+            this.remaining = 0;
+            this.resetAt = resetAt;
+            this.pending = false;
+            notifyAll();
+        }
+
+        /**
+         * Update this bucket by a response, which may arrive after the responses of later requests.
+         */
+        synchronized void update(long limit, long remaining, long resetAt) {
+            long now = System.currentTimeMillis();
+            if (limit != 0 && resetAt <= now) {
+                // A late response of a window that already reset
+            } else if (limit == 0 || this.limit == -1 || this.resetAt <= now) {
+                // Not limited, or the first response of a window
+                this.limit = limit;
+                this.remaining = remaining;
+                this.resetAt = resetAt;
+            } else {
+                // Another response of the current window, which never gives back requests counted as sent
+                this.limit = limit;
+                this.remaining = Math.min(this.remaining, remaining);
+                this.resetAt = Math.max(this.resetAt, resetAt);
+            }
+            this.pending = false;
+            notifyAll();
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public synchronized long getLimit() {
+            return limit;
+        }
+
+        public synchronized long getRemaining() {
+            return remaining;
+        }
+
+        public synchronized long getResetAt() {
+            return resetAt;
+        }
+
+        public synchronized int getQueueSize() {
+            return queue.size();
+        }
+
+        private static final class Ticket implements Comparable<Ticket> {
+
+            private final long deadline;
+            private final long sequence;
+
+            private Ticket(long deadline, long sequence) {
+                this.deadline = deadline;
+                this.sequence = sequence;
+            }
+
+            @Override
+            public int compareTo(Ticket other) {
+                int compare = Long.compare(deadline, other.deadline);
+                return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Bucket{" +
+                    "key='" + key + '\'' +
+                    ", limit=" + limit +
+                    ", remaining=" + remaining +
+                    ", resetAt=" + resetAt +
+                    '}';
+        }
+    }
+
+}
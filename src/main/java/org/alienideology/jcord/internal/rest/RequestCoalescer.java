@@ -0,0 +1,77 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.exceptions.UnirestException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RequestCoalescer - Shares identical in-flight GET requests of an identity.
+ *
+ * When a GET request is performed while an identical request (same path and parameters) is still waiting for its
+ * response, the request does not go to the network. It waits for the in-flight request and shares its parsed response,
+ * including any exception. Requests are only shared while they are in flight, nothing is cached afterwards.
+ *
+ * @author AlienIdeology
+ */
+public final class RequestCoalescer {
+
+    /* <Url, Response> */
+    private final Map<String, CompletableFuture<HttpResponse<JsonNode>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Perform a request, or wait for an identical request that is in flight.
+     *
+     * @param key The key of the request, which is the url.
+     * @param call The call that performs the request.
+     * @return The response, which may be shared with other requests.
+     * @throws UnirestException If the request failed without a response.
+     */
+    public HttpResponse<JsonNode> execute(String key, Call call) throws UnirestException {
+        CompletableFuture<HttpResponse<JsonNode>> future = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<JsonNode>> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof UnirestException) throw (UnirestException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new UnirestException((Exception) cause);
+            }
+        }
+
+        try {
+            HttpResponse<JsonNode> response = call.perform();
+            future.complete(response);
+            return response;
+        } catch (UnirestException | RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return The number of distinct requests in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A request that can be shared.
+     */
+    @FunctionalInterface
+    public interface Call {
+        HttpResponse<JsonNode> perform() throws UnirestException;
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.alienideology.jcord.internal.rest;
+
+import org.alienideology.jcord.handle.rest.RequestPriority;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RequestQueue - The bounded queue of an identity's request pool, ordered by {@link RequestPriority}.
+ *
+ * Only {@link Task}s can be queued, since other runnables have no priority. When the queue is full, further tasks are rejected.
+ *
+ * @author AlienIdeology
+ */
+public final class RequestQueue extends PriorityBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final int capacity;
+
+    /**
+     * @param capacity The maximum number of tasks waiting for a thread.
+     */
+    public RequestQueue(int capacity) {
+        super(Math.min(capacity, 64));
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (!(runnable instanceof Task)) {
+            throw new IllegalArgumentException("Only tasks with a priority can be queued!");
+        }
+        // A soft bound, concurrent offers may exceed the capacity by a few tasks
+        return size() < capacity && super.offer(runnable);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Task - A task of the request pool with a priority.
+     */
+    public static final class Task implements Runnable, Comparable<Task> {
+
+        private final Runnable runnable;
+        private final long deadline;
+        private final long sequence;
+
+        public Task(RequestPriority priority, Runnable runnable) {
+            this.runnable = runnable;
+            this.deadline = System.currentTimeMillis() + priority.delay;
+            this.sequence = SEQUENCE.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int compare = Long.compare(deadline, other.deadline);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
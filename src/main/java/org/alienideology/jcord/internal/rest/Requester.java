@@ -1,24 +1,25 @@
 package org.alienideology.jcord.internal.rest;
 
-import com.mashape.unirest.http.Headers;
+import com.mashape.unirest.http.HttpMethod;
 import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
 import com.mashape.unirest.http.exceptions.UnirestException;
 import com.mashape.unirest.request.GetRequest;
 import com.mashape.unirest.request.HttpRequest;
 import com.mashape.unirest.request.HttpRequestWithBody;
 import org.alienideology.jcord.Identity;
+import org.alienideology.jcord.JCord;
+import org.alienideology.jcord.handle.rest.RequestPriority;
 import org.alienideology.jcord.internal.exception.ErrorResponseException;
 import org.alienideology.jcord.internal.exception.HttpErrorException;
 import org.alienideology.jcord.internal.object.IdentityImpl;
 import org.alienideology.jcord.util.log.LogLevel;
 import org.alienideology.jcord.util.log.Logger;
+import org.apache.http.client.config.RequestConfig;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.IllegalFormatException;
 import java.util.function.Consumer;
 
 /**
@@ -27,6 +28,11 @@ import java.util.function.Consumer;
  */
 public final class Requester {
 
+    /* Shared by the requests of non-identity tokens, so their buckets are known across requests */
+    private static final RateLimiter RATE_LIMITER = new RateLimiter(JCord.LOG);
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy();
+    private static final RestMetrics METRICS = new RestMetrics();
+
     public Logger LOG;
 
     private HttpPath path;
@@ -34,12 +40,28 @@ public final class Requester {
     private HttpRequest request;
     private boolean useJson;
 
+    private HttpTransport transport;
+    private RateLimiter rateLimiter;
+    private RequestCoalescer coalescer;
+    private ResponseCache cache;
+    private RetryPolicy retryPolicy;
+    private RestMetrics metrics;
+    private RequestPriority priority = RequestPriority.INTERACTIVE;
+    private RequestConfig requestConfig;
+    private Object[] params = new Object[0];
+    private String apiUrl = HttpPath.DISCORD_API_URL;
+
     /**
      * Constructor for non-identity tokens
      */
     public Requester(String token, HttpPath path) {
+        this.LOG = JCord.LOG;
         this.token = token;
         this.path = path;
+        this.transport = PooledHttpTransport.getDefault();
+        this.rateLimiter = RATE_LIMITER;
+        this.retryPolicy = RETRY_POLICY;
+        this.metrics = METRICS;
     }
 
     /**
@@ -57,6 +79,13 @@ public final class Requester {
         this.token = identity.getToken();
         this.path = path;
         this.useJson = useJson;
+        this.transport = ((IdentityImpl) identity).getTransport();
+        this.rateLimiter = ((IdentityImpl) identity).getRateLimiter();
+        this.coalescer = ((IdentityImpl) identity).getRequestCoalescer();
+        this.cache = ((IdentityImpl) identity).getResponseCache();
+        this.retryPolicy = ((IdentityImpl) identity).getRetryPolicy();
+        this.metrics = identity.getRestMetrics();
+        this.apiUrl = ((IdentityImpl) identity).getApiUrl();
     }
 
     /*
@@ -118,6 +147,25 @@ public final class Requester {
         return this;
     }
 
+    /**
+     * @param priority The priority of this request when it waits for its rate limit bucket.
+     */
+    public Requester setPriority(RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Override the configuration of the transport for this request, such as a longer socket timeout for an upload.
+     *
+     * @param config The configuration, or null to use the defaults of the transport.
+     * @see PooledHttpTransport#getDefaultRequestConfig()
+     */
+    public Requester setRequestConfig(RequestConfig config) {
+        this.requestConfig = config;
+        return this;
+    }
+
     /*
         -------------
             Result
@@ -130,16 +178,14 @@ public final class Requester {
      */
     public HttpCode performRequest() {
         try {
-            HttpResponse<JsonNode> response = request.asJson();
-            checkRateLimit(response);
-            handleErrorCode(response);
+            HttpResponse<JsonNode> response = execute();
             JsonNode node = response.getBody();
             if (node != null && !node.isArray()) {
                 handleErrorResponse(node.getObject());
             }
             return HttpCode.getByKey(response.getStatus());
         } catch (UnirestException e) {
-            throw new RuntimeException("Fail to perform http request!");
+            throw new RuntimeException("Fail to perform http request!", e);
         }
     }
 
@@ -149,9 +195,7 @@ public final class Requester {
     public JSONObject getAsJSONObject() {
         JSONObject json;
         try {
-            HttpResponse<JsonNode> response = request.asJson();
-            checkRateLimit(response);
-            handleErrorCode(response);
+            HttpResponse<JsonNode> response = execute();
             JsonNode node = response.getBody();
 
             if (node.isArray()) {
@@ -160,7 +204,7 @@ public final class Requester {
                 json = node.getObject();
             }
         } catch (UnirestException e) {
-            throw new JSONException("Error Occurred while getting JSON Object: "+e.getLocalizedMessage());
+            throw new JSONException("Error Occurred while getting JSON Object: "+e.getLocalizedMessage(), e);
         }
         handleErrorResponse(json);
         return json;
@@ -172,9 +216,7 @@ public final class Requester {
     public JSONArray getAsJSONArray() {
         JSONArray json;
         try {
-            HttpResponse<JsonNode> response = request.asJson();
-            checkRateLimit(response);
-            handleErrorCode(response);
+            HttpResponse<JsonNode> response = execute();
             JsonNode node = response.getBody();
 
             if (!node.isArray()) {
@@ -184,7 +226,7 @@ public final class Requester {
                 json = node.getArray();
             }
         } catch (UnirestException e) {
-            throw new JSONException("Error Occurred while getting JSON Array: "+e.getLocalizedMessage());
+            throw new JSONException("Error Occurred while getting JSON Array: "+e.getLocalizedMessage(), e);
         }
         return json;
     }
@@ -195,47 +237,172 @@ public final class Requester {
         ----------------
      */
 
+    /**
+     * Perform the request. Identical GET requests that are in flight share one response,
+     * and responses of cached routes are reused until they expire.
+     *
+     * @return The response.
+     * @throws UnirestException If the request failed without a response.
+     */
+    private HttpResponse<JsonNode> execute() throws UnirestException {
+        if (path.getMethod() != HttpMethod.GET) {
+            HttpResponse<JsonNode> response = send();
+            if (cache != null) {
+                // The entities in this path may be modified
+                for (Object param : params) {
+                    cache.invalidate(String.valueOf(param));
+                }
+            }
+            return response;
+        }
+
+        final String url = request.getUrl();
+        final boolean cached = cache != null && cache.isCached(path);
+        String key = url;
+        ResponseCache.Entry entry = null;
+        if (cached) {
+            entry = cache.getEntry(url);
+            if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+                return entry.getResponse();
+            } else if (entry != null && entry.getETag() != null) {
+                // Only conditional requests of the same entry may share a 304 response
+                request.header("If-None-Match", entry.getETag());
+                key = url + "|" + entry.getETag();
+            }
+        }
+
+        HttpResponse<JsonNode> response = coalescer != null ? coalescer.execute(key, this::send) : send();
+
+        if (cached) {
+            if (response.getStatus() == HttpCode.NOT_MODIFIED.key && entry != null) {
+                cache.revalidate(url, entry);
+                return entry.getResponse();
+            }
+            cache.put(path, url, params, response);
+        }
+        return response;
+    }
+
+    /**
+     * Send the request once its rate limit bucket and the global rate limit allow it.
+     * Rate limited requests are queued again until the bucket resets.
+     *
+     * @return The response.
+     * @throws UnirestException If the request failed without a response.
+     */
+    private HttpResponse<JsonNode> send() throws UnirestException {
+        final String route = path.getRoute();
+        final String key = RateLimiter.getKey(route, path.getMajorParameters(params));
+        int retries = 0;
+
+        while (true) {
+            retryPolicy.checkCircuit(key);
+
+            HttpResponse<JsonNode> response;
+            try {
+                response = sendOnce(route);
+            } catch (UnirestException ex) {
+                retryPolicy.onFailure(key);
+                if (retryPolicy.canRetry(path.getMethod(), retries) && backoff(route, retries++, ex.getMessage())) {
+                    continue;
+                }
+                throw ex;
+            }
+
+            if (response.getStatus() >= 500) {
+                retryPolicy.onFailure(key);
+                if (retryPolicy.canRetry(path.getMethod(), retries) &&
+                        backoff(route, retries++, "Http Code " + response.getStatus())) {
+                    continue;
+                }
+            } else {
+                retryPolicy.onSuccess(key);
+            }
+
+            handleErrorCode(response);
+            return response;
+        }
+    }
+
+    /**
+     * Send the request once, waiting for the rate limits.
+     */
+    private HttpResponse<JsonNode> sendOnce(String route) throws UnirestException {
+        final RateLimiter.Bucket bucket = rateLimiter.getBucket(route, path.getMajorParameters(params));
+        final RestMetrics.Route routeMetrics = metrics.getRoute(route);
+
+        HttpResponse<JsonNode> response;
+        do {
+            long queued = System.currentTimeMillis();
+            bucket.acquire(priority);
+            try {
+                rateLimiter.awaitGlobal();
+                long started = System.currentTimeMillis();
+                routeMetrics.waited(started - queued);
+                routeMetrics.requestStarted();
+                try {
+                    response = transport.execute(request, JsonNode.class, requestConfig);
+                } catch (UnirestException | RuntimeException ex) {
+                    routeMetrics.requestFinished(System.currentTimeMillis() - started, true);
+                    throw ex;
+                }
+                routeMetrics.requestFinished(System.currentTimeMillis() - started, false);
+            } catch (UnirestException | RuntimeException ex) {
+                bucket.release();
+                throw ex;
+            }
+            if (response.getStatus() == HttpCode.TOO_MANY_REQUESTS.key) {
+                routeMetrics.rateLimited();
+            }
+        } while (!rateLimiter.update(route, bucket, response));
+
+        return response;
+    }
+
+    /**
+     * Wait before retrying a failed request.
+     *
+     * @return False if the thread is interrupted, and the request should not be retried.
+     */
+    private boolean backoff(String route, int retries, String reason) {
+        long backoff = retryPolicy.getBackoff(retries);
+        metrics.getRoute(route).retried();
+        LOG.log(LogLevel.WARN, "Request failed, retrying in " + backoff + " ms.\n" +
+                "(Route: " + route + " | Attempt: " + (retries + 2) + " | Reason: " + reason + ")");
+        try {
+            Thread.sleep(backoff);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     /**
      * Using the HttpMethod to return a http request.
      * @param params Parameters to be replaced.
      * @return The http request
      */
     private HttpRequest requestHttp(Object... params) {
-        String processedPath = processPath(params);
+        String processedPath = path.compile(params);
+        if (!apiUrl.equals(HttpPath.DISCORD_API_URL) && processedPath.startsWith(HttpPath.DISCORD_API_URL)) {
+            processedPath = apiUrl + processedPath.substring(HttpPath.DISCORD_API_URL.length());
+        }
+        this.params = params;
 
-        HttpRequest request = null;
+        HttpRequest request;
         switch (path.getMethod()) {
             case GET:
-                request = Unirest.get(processedPath); break;
             case HEAD:
-                request = Unirest.head(processedPath); break;
-            case POST:
-                request = Unirest.post(processedPath); break;
-            case PUT:
-                request = Unirest.put(processedPath); break;
-            case PATCH:
-                request = Unirest.patch(processedPath); break;
-            case DELETE:
-                request = Unirest.delete(processedPath); break;
-            case OPTIONS:
-                request = Unirest.options(processedPath); break;
+                request = new GetRequest(path.getMethod(), processedPath); break;
+            default:
+                request = new HttpRequestWithBody(path.getMethod(), processedPath); break;
         }
         processRequest(request);
         this.request = request;
         return request;
     }
 
-    private String processPath(Object... params) {
-        String processedPath;
-        try {
-            processedPath = path.getPath().replaceAll("\\{(.+?)}", "%s");
-            processedPath = String.format(processedPath, params);
-        } catch (IllegalFormatException ife) {
-            throw new IllegalArgumentException("[INTERNAL] Cannot perform an HttpRequest due to unmatched parameters!");
-        }
-        return processedPath;
-    }
-
     private void processRequest(HttpRequest request) {
         request.header("Authorization", token);
         if (useJson) request.header("Content-Type", "application/json");
@@ -253,33 +420,13 @@ public final class Requester {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private void handleErrorCode(HttpResponse response) {
         HttpCode error = HttpCode.getByKey(response.getStatus());
         if (error.isServerError() || error.isFailure()) {
-            if (error.equals(HttpCode.TOO_MANY_REQUESTS)) { // Rate limited
-                checkRateLimit(response);
-            } else {
-                throw new HttpErrorException(error);
-            }
+            throw new HttpErrorException(error);
         } else if (error == HttpCode.UNKNOWN){
             throw new HttpErrorException(response.getStatus(), response.getStatusText());
         }
     }
 
-    private void checkRateLimit(HttpResponse<JsonNode> response) {
-        final Headers headers = response.getHeaders();
-        if (headers.containsKey("Retry-After")) { // Rate limited
-            Long retryAfter = Long.parseLong(headers.getFirst("Retry-After")); // In milliseconds
-            LOG.log(LogLevel.ERROR, "You are being rate limited! Automatically blocked the thread.\n" +
-                    "(Request: "+path.toString()+" | Retry after: "+retryAfter+" ms)");
-            try {
-                Thread.sleep(retryAfter);
-            } catch (InterruptedException e) {
-                LOG.log(LogLevel.ERROR, "Error when blocking thread for rate limit: ", null);
-                e.printStackTrace();
-            }
-        }
-    }
-
 }
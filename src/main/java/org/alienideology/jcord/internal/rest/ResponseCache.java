@@ -0,0 +1,228 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseCache - An opt-in cache of Rest API responses for read routes.
+ *
+ * Only the routes with a time to live are cached. A cached response is reused until it expires.
+ * An expired response that came with an {@code ETag} is revalidated with {@code If-None-Match},
+ * and reused if Discord returns {@code 304 Not Modified}.
+ * When the cache is full, the least recently used response is evicted.
+ *
+ * Responses are invalidated by the ids in their path, when the entity is updated by a gateway event,
+ * or when the identity modifies it through the Rest API.
+ *
+ * @author AlienIdeology
+ */
+public final class ResponseCache {
+
+    private final int maxEntries;
+    /* <Route, Time to Live in Milliseconds> */
+    private final Map<String, Long> timeToLives = new HashMap<>();
+    /* <Url, Entry>, in access order */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Default constructor, with up to 1000 responses.
+     * Guilds, channels, webhooks and integrations are cached for 60 seconds, and bans for 30 seconds.
+     */
+    public ResponseCache() {
+        this(1000);
+    }
+
+    /**
+     * Constructor with the default time to lives.
+     *
+     * @param maxEntries The maximum number of responses to keep.
+     */
+    public ResponseCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The maximum number of cached responses must be positive!");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+
+        setTimeToLive(HttpPath.Guild.GET_GUILD, 60, TimeUnit.SECONDS);
+        setTimeToLive(HttpPath.Guild.GET_GUILD_INTEGRATIONS, 60, TimeUnit.SECONDS);
+        setTimeToLive(HttpPath.Guild.GET_GUILD_BANS, 30, TimeUnit.SECONDS);
+        setTimeToLive(HttpPath.Channel.GET_CHANNEL, 60, TimeUnit.SECONDS);
+        setTimeToLive(HttpPath.Webhook.GET_CHANNEL_WEBHOOKS, 60, TimeUnit.SECONDS);
+        setTimeToLive(HttpPath.Webhook.GET_WEBHOOK, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Set the time to live of a route's responses.
+     *
+     * @param path The GET route.
+     * @param duration The time to live, or 0 to stop caching this route.
+     * @param unit The unit of the duration.
+     * @return ResponseCache for chaining.
+     */
+    public synchronized ResponseCache setTimeToLive(HttpPath path, long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            timeToLives.remove(path.getRoute());
+            invalidate(path);
+        } else {
+            timeToLives.put(path.getRoute(), unit.toMillis(duration));
+        }
+        return this;
+    }
+
+    /**
+     * @param path The route.
+     * @return True if the responses of this route are cached.
+     */
+    public synchronized boolean isCached(HttpPath path) {
+        return timeToLives.containsKey(path.getRoute());
+    }
+
+    /**
+     * Get the cached entry of a request, which may be expired.
+     *
+     * @param url The url of the request.
+     * @return The entry, or null if the request is not cached.
+     */
+    public synchronized Entry getEntry(String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * Cache a successful response.
+     *
+     * @param path The route of the request.
+     * @param url The url of the request.
+     * @param params The parameters of the request, used to invalidate the response.
+     * @param response The response.
+     */
+    public synchronized void put(HttpPath path, String url, Object[] params, HttpResponse<JsonNode> response) {
+        Long ttl = timeToLives.get(path.getRoute());
+        if (ttl == null || response.getStatus() < 200 || response.getStatus() >= 300) return;
+
+        String[] ids = new String[params.length];
+        for (int i = 0; i < params.length; i++) {
+            ids[i] = String.valueOf(params[i]);
+        }
+        String etag = RateLimiter.getHeader(response.getHeaders(), "ETag");
+        entries.put(url, new Entry(path.getRoute(), ids, response, etag, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Reuse an expired entry after Discord returns {@code 304 Not Modified}.
+     *
+     * @param url The url of the request.
+     * @param entry The expired entry.
+     */
+    public synchronized void revalidate(String url, Entry entry) {
+        Long ttl = timeToLives.get(entry.route);
+        if (ttl == null) return;
+        entries.put(url, new Entry(entry.route, entry.ids, entry.response, entry.etag, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Invalidate every response with this id in its path.
+     *
+     * @param id The id of a guild, channel, webhook, etc.
+     */
+    public synchronized void invalidate(String id) {
+        entries.values().removeIf(entry -> Arrays.asList(entry.ids).contains(id));
+    }
+
+    /**
+     * Invalidate the responses of a route with this id in its path.
+     *
+     * @param path The route.
+     * @param id The id of a guild, channel, webhook, etc.
+     */
+    public synchronized void invalidate(HttpPath path, String id) {
+        entries.values().removeIf(entry -> entry.route.equals(path.getRoute()) && Arrays.asList(entry.ids).contains(id));
+    }
+
+    /**
+     * Invalidate every response of a route.
+     *
+     * @param path The route.
+     */
+    public synchronized void invalidate(HttpPath path) {
+        entries.values().removeIf(entry -> entry.route.equals(path.getRoute()));
+    }
+
+    /**
+     * Invalidate every response.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Remove the expired responses that cannot be revalidated.
+     */
+    public synchronized void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.isExpired(now) && entry.etag == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The number of cached responses.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Entry - A cached response.
+     */
+    public static final class Entry {
+
+        private final String route;
+        private final String[] ids;
+        private final HttpResponse<JsonNode> response;
+        private final String etag;
+        private final long expiresAt;
+
+        private Entry(String route, String[] ids, HttpResponse<JsonNode> response, String etag, long expiresAt) {
+            this.route = route;
+            this.ids = ids;
+            this.response = response;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        public HttpResponse<JsonNode> getResponse() {
+            return response;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,279 @@
+package org.alienideology.jcord.internal.rest;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RestMetrics - Statistics of an identity's rest requests, recorded per route.
+ *
+ * Each route, which is the http method and the path without parameters, records
+ * the latency of its requests, the number of requests in flight, the number of rate limited (429) responses,
+ * the number of retries and the time spent waiting for rate limits.
+ * All values are counted since the identity is built.
+ *
+ * @author AlienIdeology
+ */
+public final class RestMetrics {
+
+    /**
+     * The upper bounds in milliseconds of the latency histogram's buckets.
+     * The last bucket counts every request slower than the last bound.
+     */
+    public static final long[] LATENCY_BOUNDS = {25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    /* <Route, Metrics> */
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Get the metrics of a route.
+     *
+     * @param path The path of the route.
+     * @return The metrics, never null.
+     */
+    public Route getRoute(HttpPath path) {
+        return getRoute(path.getRoute());
+    }
+
+    /**
+     * Get the metrics of a route.
+     *
+     * @param route The route, which is the http method and the path without parameters.
+     * @return The metrics, never null.
+     */
+    public Route getRoute(String route) {
+        return routes.computeIfAbsent(route, Route::new);
+    }
+
+    /**
+     * @return The metrics of every route that was requested, keyed by route.
+     */
+    public Map<String, Route> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * @return The number of requests sent.
+     */
+    public long getRequestCount() {
+        return routes.values().stream().mapToLong(Route::getRequestCount).sum();
+    }
+
+    /**
+     * @return The number of requests in flight.
+     */
+    public int getInFlight() {
+        return routes.values().stream().mapToInt(Route::getInFlight).sum();
+    }
+
+    /**
+     * @return The number of rate limited (429) responses.
+     */
+    public long getRateLimitCount() {
+        return routes.values().stream().mapToLong(Route::getRateLimitCount).sum();
+    }
+
+    /**
+     * @return The number of retries.
+     */
+    public long getRetryCount() {
+        return routes.values().stream().mapToLong(Route::getRetryCount).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RestMetrics{" +
+                "requests=" + getRequestCount() +
+                ", inFlight=" + getInFlight() +
+                ", rateLimits=" + getRateLimitCount() +
+                ", retries=" + getRetryCount() +
+                '}';
+    }
+
+    /**
+     * Route - The metrics of a route.
+     */
+    public static final class Route {
+
+        private final String route;
+
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BOUNDS.length + 1);
+        private final LongAdder latencyTotal = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rateLimits = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitTotal = new LongAdder();
+
+        private Route(String route) {
+            this.route = route;
+        }
+
+        /*
+            ----------------
+                Recording
+            ----------------
+         */
+
+        void requestStarted() {
+            inFlight.incrementAndGet();
+        }
+
+        void requestFinished(long latency, boolean failed) {
+            inFlight.decrementAndGet();
+            if (failed) {
+                failures.increment();
+                return;
+            }
+            latencyTotal.add(latency);
+            int index = 0;
+            while (index < LATENCY_BOUNDS.length && latency > LATENCY_BOUNDS[index]) {
+                index++;
+            }
+            latencies.incrementAndGet(index);
+        }
+
+        void rateLimited() {
+            rateLimits.increment();
+        }
+
+        void retried() {
+            retries.increment();
+        }
+
+        void waited(long time) {
+            waits.increment();
+            waitTotal.add(time);
+        }
+
+        /*
+            ---------------
+                Getters
+            ---------------
+         */
+
+        /**
+         * @return The route, which is the http method and the path without parameters.
+         */
+        public String getRoute() {
+            return route;
+        }
+
+        /**
+         * @return The number of responses received, including rate limited and error responses.
+         */
+        public long getRequestCount() {
+            long count = 0;
+            for (int i = 0; i < latencies.length(); i++) {
+                count += latencies.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * @return The number of requests that failed without a response.
+         */
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        /**
+         * @return The number of requests waiting for a response.
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return The number of rate limited (429) responses.
+         */
+        public long getRateLimitCount() {
+            return rateLimits.sum();
+        }
+
+        /**
+         * @return The number of times a request was retried after a failure or a server error.
+         */
+        public long getRetryCount() {
+            return retries.sum();
+        }
+
+        /**
+         * @return The average latency in milliseconds, or 0 if there is no response.
+         */
+        public double getAverageLatency() {
+            long count = getRequestCount();
+            return count == 0 ? 0 : (double) latencyTotal.sum() / count;
+        }
+
+        /**
+         * Get an estimate of a latency percentile, which is the upper bound of the histogram bucket it falls in.
+         *
+         * @param percentile The percentile, between 0 and 100. For example, 99 for the 99th percentile.
+         * @return The latency in milliseconds, {@link Long#MAX_VALUE} if it is slower than every bound,
+         *          or 0 if there is no response.
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100! Provided percentile: " + percentile);
+            }
+            long count = getRequestCount();
+            if (count == 0) return 0;
+
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+                seen += latencies.get(i);
+                if (seen >= rank) return LATENCY_BOUNDS[i];
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Get the latency histogram, each count matches a bound of {@link #LATENCY_BOUNDS},
+         * the last count is the number of requests slower than every bound.
+         *
+         * @return The counts of the histogram.
+         */
+        public long[] getLatencyHistogram() {
+            long[] histogram = new long[latencies.length()];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = latencies.get(i);
+            }
+            return histogram;
+        }
+
+        /**
+         * @return The total time in milliseconds requests spent waiting for rate limit buckets and global rate limits.
+         */
+        public long getWaitTime() {
+            return waitTotal.sum();
+        }
+
+        /**
+         * @return The average time in milliseconds a request waited for rate limits.
+         */
+        public double getAverageWaitTime() {
+            long count = waits.sum();
+            return count == 0 ? 0 : (double) waitTotal.sum() / count;
+        }
+
+        @Override
+        public String toString() {
+            return "Route{" +
+                    "route='" + route + '\'' +
+                    ", requests=" + getRequestCount() +
+                    ", inFlight=" + getInFlight() +
+                    ", rateLimits=" + getRateLimitCount() +
+                    ", retries=" + getRetryCount() +
+                    ", averageLatency=" + getAverageLatency() +
+                    ", averageWaitTime=" + getAverageWaitTime() +
+                    '}';
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpMethod;
+import org.alienideology.jcord.internal.exception.HttpErrorException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RetryPolicy - Decides when a failed rest request is sent again.
+ *
+ * Requests with idempotent http methods (GET, HEAD, PUT, DELETE and OPTIONS) are retried
+ * if they fail without a response or with a server error (5xx). Each request has a budget of retries,
+ * and waits for an exponential backoff with full jitter between attempts, so failed requests do not retry together.
+ *
+ * Each route has a circuit breaker per major parameters, like its rate limit buckets, so a failing channel or guild
+ * does not suspend the route for the others. After a number of consecutive failures, the circuit opens and
+ * requests of that route and major parameters fail immediately, until the circuit closes again after a while.
+ * The first request after that is a trial, the circuit opens again if it fails.
+ *
+ * @author AlienIdeology
+ */
+public final class RetryPolicy {
+
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    /* <Route + Major Parameters, Circuit> */
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor, with up to 3 retries, a backoff from 500 milliseconds up to 10 seconds,
+     * and circuits that open for 30 seconds after 5 consecutive failures.
+     */
+    public RetryPolicy() {
+        this(3, 500, 10_000, 5, 30_000);
+    }
+
+    /**
+     * Constructor for a customized policy.
+     *
+     * @param maxRetries The maximum number of times a request is retried, 0 to never retry.
+     * @param baseDelay The backoff in milliseconds of the first retry, which doubles for every retry.
+     * @param maxDelay The maximum backoff in milliseconds.
+     * @param failureThreshold The number of consecutive failures that opens a circuit, 0 to never open it.
+     * @param openDuration The time in milliseconds a circuit stays open.
+     */
+    public RetryPolicy(int maxRetries, long baseDelay, long maxDelay, int failureThreshold, long openDuration) {
+        if (maxRetries < 0 || baseDelay < 0 || maxDelay < baseDelay || failureThreshold < 0 || openDuration < 0) {
+            throw new IllegalArgumentException("Invalid retry policy! The retries, delays and thresholds cannot be negative.");
+        }
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * A policy that never retries and never opens a circuit.
+     *
+     * @return The policy.
+     */
+    public static RetryPolicy never() {
+        return new RetryPolicy(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param method The http method.
+     * @return True if sending a request of this method more than once has the same effect as sending it once.
+     */
+    public boolean isIdempotent(HttpMethod method) {
+        switch (method) {
+            case GET:
+            case HEAD:
+            case PUT:
+            case DELETE:
+            case OPTIONS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param method The http method of the request.
+     * @param retries The number of times the request was retried.
+     * @return True if the request can be retried again.
+     */
+    public boolean canRetry(HttpMethod method, int retries) {
+        return retries < maxRetries && isIdempotent(method);
+    }
+
+    /**
+     * Get the backoff before a retry, which is a random time between 0 and the exponential backoff.
+     *
+     * @param retries The number of times the request was retried.
+     * @return The backoff in milliseconds.
+     */
+    public long getBackoff(int retries) {
+        long backoff = baseDelay << Math.min(retries, 30);
+        if (backoff <= 0 || backoff > maxDelay) backoff = maxDelay;
+        return backoff == 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * Check the circuit of a request before it is sent.
+     *
+     * @param key The bucket key of the request, see {@link RateLimiter#getKey(String, String)}.
+     * @exception HttpErrorException If the circuit is open.
+     */
+    public void checkCircuit(String key) {
+        if (failureThreshold == 0) return;
+        Circuit circuit = circuits.get(key);
+        if (circuit != null && !circuit.allow(System.currentTimeMillis())) {
+            throw new HttpErrorException(HttpCode.SERVER_ERROR, "The requests of " + key + " are failing, " +
+                    "requests are suspended until " + circuit.getOpenUntil() + " (epoch milliseconds).");
+        }
+    }
+
+    /**
+     * @param key The bucket key of a request that received a response.
+     */
+    public void onSuccess(String key) {
+        Circuit circuit = circuits.get(key);
+        if (circuit != null) circuit.close();
+    }
+
+    /**
+     * @param key The bucket key of a request that failed without a response or with a server error.
+     */
+    public void onFailure(String key) {
+        if (failureThreshold == 0) return;
+        circuits.computeIfAbsent(key, k -> new Circuit()).fail(System.currentTimeMillis());
+    }
+
+    /**
+     * @param key The bucket key, see {@link RateLimiter#getKey(String, String)}.
+     * @return True if requests of this key are currently suspended.
+     */
+    public boolean isCircuitOpen(String key) {
+        Circuit circuit = circuits.get(key);
+        return circuit != null && circuit.getOpenUntil() > System.currentTimeMillis();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Circuit - The circuit breaker of a route and its major parameters.
+     */
+    private final class Circuit {
+
+        private int failures = 0;
+        private long openUntil = 0;
+
+        synchronized boolean allow(long now) {
+            if (failures < failureThreshold) return true;
+            if (now < openUntil) return false;
+            // Half open, let one trial request through and hold the others
+            openUntil = now + openDuration;
+            return true;
+        }
+
+        synchronized void fail(long now) {
+            failures++;
+            if (failures >= failureThreshold) {
+                openUntil = now + openDuration;
+            }
+        }
+
+        synchronized void close() {
+            failures = 0;
+            openUntil = 0;
+        }
+
+        synchronized long getOpenUntil() {
+            return openUntil;
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.alienideology.jcord.internal.rest;
+
+import org.alienideology.jcord.handle.message.Upload;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.InputStreamBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UploadBody - A multipart body that streams an {@link Upload} to the connection.
+ *
+ * Files are transferred through a {@link FileChannel} and buffers are written directly,
+ * so the content is never copied into the heap as a whole.
+ * A request is sent again after a rate limit, so streams up to {@link #REPLAY_SIZE} bytes are kept while they are sent.
+ * A larger stream cannot be sent again, and the request fails instead.
+ * This extends {@link InputStreamBody} so Unirest's multipart body adds it as it is.
+ *
+ * @author AlienIdeology
+ */
+public final class UploadBody extends InputStreamBody {
+
+    /**
+     * The maximum size of a stream that is kept, so the request can be sent again.
+     */
+    public static final int REPLAY_SIZE = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Upload upload;
+    /* Bytes left before the size limit, shared by the uploads of a message */
+    private final AtomicLong remaining;
+    private boolean consumed = false;
+    /* The content of a sent stream, or null if the stream is larger than REPLAY_SIZE */
+    private byte[] replay;
+
+    /**
+     * @param upload The upload.
+     * @param remaining The number of bytes the uploads of a message can still send,
+     *                  used to limit the uploads of unknown size.
+     */
+    public UploadBody(Upload upload, AtomicLong remaining) {
+        super(upload.getStream() == null ? new ByteArrayInputStream(new byte[0]) : upload.getStream(),
+                ContentType.APPLICATION_OCTET_STREAM, upload.getName());
+        this.upload = upload;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+
+        if (upload.getFile() != null) {
+            try (FileChannel channel = FileChannel.open(upload.getFile().toPath(), StandardOpenOption.READ)) {
+                long size = upload.getSize();
+                long position = 0;
+                while (position < size) {
+                    long transferred = channel.transferTo(position, Math.min(CHUNK_SIZE, size - position), target);
+                    if (transferred <= 0) {
+                        // The body would not match its content length
+                        throw new IOException("The file of upload " + upload.getName() + " is shorter than its size of " + size + " bytes!");
+                    }
+                    position += transferred;
+                }
+            }
+        } else if (upload.getBuffer() != null) {
+            ByteBuffer buffer = upload.getBuffer();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        } else if (replay != null) {
+            out.write(replay);
+        } else {
+            if (consumed) {
+                throw new IOException("The stream of upload " + upload.getName() + " was already sent and was not kept (larger than "
+                        + REPLAY_SIZE + " bytes, or failed), so the request cannot be retried! Upload a file or a buffer instead.");
+            }
+            consumed = true;
+            writeStream(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the stream, which is exactly as long as its declared size, or limited by the remaining size if its size is unknown.
+     */
+    private void writeStream(OutputStream out) throws IOException {
+        InputStream in = upload.getStream();
+        long size = upload.getSize();
+        ByteArrayOutputStream copy = size > REPLAY_SIZE ? null : new ByteArrayOutputStream(size == -1 ? CHUNK_SIZE : (int) size);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long total = 0;
+        while (size == -1 || total < size) {
+            int read = in.read(chunk, 0, size == -1 ? CHUNK_SIZE : (int) Math.min(CHUNK_SIZE, size - total));
+            if (read == -1) break;
+            total += read;
+            if (size == -1 && remaining.addAndGet(-read) < 0) {
+                throw new IOException("The uploads are larger than the size limit of " + Upload.MAX_SIZE + " bytes!");
+            }
+            out.write(chunk, 0, read);
+            if (copy != null) {
+                if (total <= REPLAY_SIZE) {
+                    copy.write(chunk, 0, read);
+                } else {
+                    copy = null;
+                }
+            }
+        }
+
+        // The body must match its content length
+        if (size != -1 && total < size) {
+            throw new IOException("The stream of upload " + upload.getName() + " ended after " + total + " of its " + size + " bytes!");
+        }
+        if (size != -1 && in.read() != -1) {
+            throw new IOException("The stream of upload " + upload.getName() + " is longer than its size of " + size + " bytes!");
+        }
+        if (copy != null) {
+            replay = copy.toByteArray();
+        }
+    }
+
+    @Override
+    public long getContentLength() {
+        return upload.getSize();
+    }
+
+}
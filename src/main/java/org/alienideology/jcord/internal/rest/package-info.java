@@ -6,6 +6,15 @@
  * {@link org.alienideology.jcord.internal.rest.HttpPath} is where all the Http Requests' path go. It is set up for requesting
  *     Get, Post, Patch, Delete, etc methods.
  * {@link org.alienideology.jcord.internal.rest.Requester} is the class used to perform rest http request.
+ * {@link org.alienideology.jcord.internal.rest.HttpTransport} sends the requests, by default through the pooled
+ *     connections of {@link org.alienideology.jcord.internal.rest.PooledHttpTransport}.
+ * {@link org.alienideology.jcord.internal.rest.RateLimiter} keeps track of the rate limit buckets, each request waits
+ *     for its bucket before it is sent.
+ * {@link org.alienideology.jcord.internal.rest.RequestCoalescer} shares identical GET requests that are in flight.
+ * {@link org.alienideology.jcord.internal.rest.ResponseCache} optionally caches the responses of read routes.
+ * {@link org.alienideology.jcord.internal.rest.UploadBody} streams message attachments in multipart requests.
+ * {@link org.alienideology.jcord.internal.rest.RestMetrics} records the latency and rate limits of each route.
+ * {@link org.alienideology.jcord.internal.rest.RetryPolicy} retries failed idempotent requests, with a circuit breaker per route and major parameters.
  * </p>
  * @author AlienIdeology
  */
@@ -19,6 +19,21 @@ import java.util.Base64;
  */
 public class DataUtils {
 
+    /**
+     * The first millisecond of 2015, which the timestamps of snowflakes count from.
+     */
+    public static final long DISCORD_EPOCH = 1420070400000L;
+
+    /**
+     * Get the time a snowflake was created, without an object holding it.
+     *
+     * @param snowflake The snowflake.
+     * @return The created time in epoch milliseconds.
+     */
+    public static long getSnowflakeTime(String snowflake) {
+        return (Long.parseLong(snowflake) >> 22) + DISCORD_EPOCH;
+    }
+
     public static byte[] getBytesFromImage(String fileFormat, BufferedImage image) throws IOException {
         ByteArrayOutputStream byteoutput = new ByteArrayOutputStream();
         ImageIO.write(image, fileFormat, byteoutput);
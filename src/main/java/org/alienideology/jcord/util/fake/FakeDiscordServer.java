@@ -0,0 +1,876 @@
+package org.alienideology.jcord.util.fake;
+
+import fi.iki.elonen.NanoHTTPD;
+import org.alienideology.jcord.JCord;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.alienideology.jcord.util.log.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FakeDiscordServer - An embeddable server on localhost, which speaks enough of the Gateway and rest api
+ * to log in bots and run load or integration tests without Discord.
+ *
+ * The rest api serves the gateway, user, guild, member and channel routes of {@link org.alienideology.jcord.internal.rest.HttpPath}
+ * from synthetic guilds added by {@link #addGuilds(int, int, int)}, and answers with the rate limit headers of Discord.
+ * The Gateway sends hello, answers identifies with ready and a guild create per guild of the shard, acknowledges heartbeats,
+ * resumes known sessions, answers member requests, and dispatches the events of {@link #dispatch(String, JSONObject)}.
+ *
+ * Build an identity against it with {@link org.alienideology.jcord.IdentityBuilder#setApiUrl(String)}:
+ * <pre>
+ *     FakeDiscordServer server = new FakeDiscordServer().addGuilds(100, 5, 50).start();
+ *     Identity bot = new IdentityBuilder()
+ *             .setIdentityType(IdentityType.BOT)
+ *             .useToken(token)
+ *             .setApiUrl(server.getApiUrl())
+ *             .setTransportCompression(true)
+ *             .build(false);
+ * </pre>
+ *
+ * @author AlienIdeology
+ */
+public final class FakeDiscordServer implements AutoCloseable {
+
+    /**
+     * The first second of 2015, where snowflake timestamps start.
+     */
+    public static final long DISCORD_EPOCH = 1420070400000L;
+
+    public final Logger LOG = new Logger("FakeDiscordServer");
+
+    private final Rest rest;
+    private final FakeGateway gateway;
+
+    private final long idBase = System.currentTimeMillis() - DISCORD_EPOCH;
+    private final AtomicLong idCounter = new AtomicLong();
+
+    private final JSONObject self;
+    /* <Guild Id, Guild without members> */
+    private final Map<String, JSONObject> guilds = Collections.synchronizedMap(new LinkedHashMap<>());
+    /* <Guild Id, Members ordered by id> */
+    private final Map<String, List<JSONObject>> members = new ConcurrentHashMap<>();
+    /* <Channel Id, Channel with guild id> */
+    private final Map<String, JSONObject> channels = new ConcurrentHashMap<>();
+
+    private volatile int shards = 1;
+    private volatile int maxConcurrency = 1;
+    private volatile long heartbeatInterval = 41250;
+
+    private volatile long minLatency = 0;
+    private volatile long maxLatency = 0;
+
+    private volatile int bucketLimit = 0;
+    private volatile long bucketResetAfter = 1000;
+    /* <Bucket, Rate limit state> */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger forcedRateLimits = new AtomicInteger();
+    private volatile long forcedRetryAfter = 1000;
+    private volatile boolean forcedGlobal = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    /**
+     * Default constructor, with the rest api and the Gateway on free ports of 127.0.0.1.
+     */
+    public FakeDiscordServer() {
+        this(0, 0);
+    }
+
+    /**
+     * @param restPort The port of the rest api, or 0 for a free port.
+     * @param gatewayPort The port of the Gateway, or 0 for a free port.
+     */
+    public FakeDiscordServer(int restPort, int gatewayPort) {
+        this.rest = new Rest(restPort);
+        this.gateway = new FakeGateway(this, gatewayPort);
+        this.self = new JSONObject()
+                .put("id", nextId())
+                .put("username", "FakeBot")
+                .put("discriminator", "0001")
+                .put("avatar", JSONObject.NULL)
+                .put("bot", true)
+                .put("verified", true)
+                .put("mfa_enabled", false);
+    }
+
+    /**
+     * Start the rest api and the Gateway.
+     *
+     * @return FakeDiscordServer for chaining.
+     * @throws IOException If a port cannot be bound.
+     */
+    public FakeDiscordServer start() throws IOException {
+        rest.start(NanoHTTPD.SOCKET_READ_TIMEOUT, true);
+        gateway.start();
+        LOG.log(LogLevel.INFO, "Listening on " + getApiUrl() + " and " + getGatewayUrl());
+        return this;
+    }
+
+    /**
+     * Stop the servers and close every connection.
+     */
+    public void stop() {
+        gateway.stop();
+        rest.stop();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /*
+        ------------------------
+              Configuration
+        ------------------------
+     */
+
+    /**
+     * Set the shards recommended by {@code GET /gateway/bot}.
+     * By default, 1 shard and a {@code max_concurrency} of 1.
+     *
+     * @param shards The recommended number of shards.
+     * @param maxConcurrency The number of shards that can identify at the same time.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer setShards(int shards, int maxConcurrency) {
+        if (shards < 1 || maxConcurrency < 1) {
+            throw new IllegalArgumentException("The shards and max concurrency must be positive!");
+        }
+        this.shards = shards;
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Set the heartbeat interval sent in hello, used by the next connections.
+     * By default, 41250 milliseconds like Discord.
+     *
+     * @param heartbeatInterval The interval in milliseconds.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer setHeartbeatInterval(long heartbeatInterval) {
+        if (heartbeatInterval < 1) {
+            throw new IllegalArgumentException("The heartbeat interval must be positive!");
+        }
+        this.heartbeatInterval = heartbeatInterval;
+        return this;
+    }
+
+    /**
+     * Delay every rest response and Gateway reply by a random time in a range.
+     * By default, there is no latency.
+     *
+     * @param min The minimum latency in milliseconds.
+     * @param max The maximum latency in milliseconds.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer setLatency(long min, long max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("The latency range is invalid! Provided range: " + min + " - " + max);
+        }
+        this.minLatency = min;
+        this.maxLatency = max;
+        return this;
+    }
+
+    /**
+     * Limit every rest bucket to a number of requests per period, further requests receive 429 responses.
+     * A bucket is a route with its major parameter, like Discord.
+     * By default, buckets are not limited, but the responses still have rate limit headers.
+     *
+     * @param limit The number of requests per period, or 0 to not limit the buckets.
+     * @param resetAfter The period in milliseconds.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer setRateLimit(int limit, long resetAfter) {
+        if (limit < 0 || resetAfter < 1) {
+            throw new IllegalArgumentException("The rate limit is invalid! Provided limit: " + limit + "/" + resetAfter + "ms");
+        }
+        this.bucketLimit = limit;
+        this.bucketResetAfter = resetAfter;
+        buckets.clear();
+        return this;
+    }
+
+    /**
+     * Answer the next rest requests with 429 responses, regardless of their buckets.
+     *
+     * @param count The number of requests to rate limit.
+     * @param retryAfter The retry after of the responses in milliseconds.
+     * @param global True for global rate limits, false for bucket rate limits.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer rateLimitNext(int count, long retryAfter, boolean global) {
+        this.forcedRetryAfter = retryAfter;
+        this.forcedGlobal = global;
+        forcedRateLimits.set(count);
+        return this;
+    }
+
+    /*
+        ------------------------
+                  Data
+        ------------------------
+     */
+
+    /**
+     * Add synthetic guilds, owned by the bot.
+     *
+     * @param count The number of guilds.
+     * @param channels The number of text channels of each guild.
+     * @param members The number of members of each guild, excluding the bot.
+     * @return FakeDiscordServer for chaining.
+     */
+    public FakeDiscordServer addGuilds(int count, int channels, int members) {
+        for (int i = 0; i < count; i++) {
+            addGuild("Guild " + (guilds.size() + 1), channels, members);
+        }
+        return this;
+    }
+
+    /**
+     * Add a synthetic guild, owned by the bot.
+     * The guild has an everyone role, text channels named {@code channel-n}, and members named {@code User n}.
+     *
+     * @param name The name of the guild.
+     * @param channelCount The number of text channels.
+     * @param memberCount The number of members, excluding the bot.
+     * @return The guild id.
+     */
+    public String addGuild(String name, int channelCount, int memberCount) {
+        String id = nextId();
+
+        JSONArray channelArray = new JSONArray();
+        for (int i = 0; i < channelCount; i++) {
+            JSONObject channel = new JSONObject()
+                    .put("id", nextId())
+                    .put("guild_id", id)
+                    .put("name", "channel-" + (i + 1))
+                    .put("position", i)
+                    .put("type", 0)
+                    .put("topic", JSONObject.NULL)
+                    .put("permission_overwrites", new JSONArray());
+            channels.put(channel.getString("id"), channel);
+            channelArray.put(channel);
+        }
+
+        List<JSONObject> memberList = new ArrayList<>(memberCount + 1);
+        memberList.add(buildMember(self));
+        for (int i = 0; i < memberCount; i++) {
+            memberList.add(buildMember(new JSONObject()
+                    .put("id", nextId())
+                    .put("username", "User " + (i + 1))
+                    .put("discriminator", String.format("%04d", i % 10000))
+                    .put("avatar", JSONObject.NULL)
+                    .put("bot", false)));
+        }
+        members.put(id, Collections.unmodifiableList(memberList));
+
+        guilds.put(id, new JSONObject()
+                .put("id", id)
+                .put("name", name)
+                .put("icon", JSONObject.NULL)
+                .put("splash", JSONObject.NULL)
+                .put("owner_id", self.getString("id"))
+                .put("region", "us-east")
+                .put("afk_channel_id", JSONObject.NULL)
+                .put("afk_timeout", 300)
+                .put("verification_level", 0)
+                .put("default_message_notifications", 0)
+                .put("explicit_content_filter", 0)
+                .put("mfa_level", 0)
+                .put("roles", new JSONArray().put(new JSONObject()
+                        .put("id", id)
+                        .put("name", "@everyone")
+                        .put("color", 0)
+                        .put("hoist", false)
+                        .put("position", 0)
+                        .put("permissions", 104324161)
+                        .put("managed", false)
+                        .put("mentionable", false)))
+                .put("emojis", new JSONArray())
+                .put("channels", channelArray));
+        return id;
+    }
+
+    private JSONObject buildMember(JSONObject user) {
+        return new JSONObject()
+                .put("user", user)
+                .put("nick", JSONObject.NULL)
+                .put("roles", new JSONArray())
+                .put("joined_at", timestamp())
+                .put("deaf", false)
+                .put("mute", false);
+    }
+
+    /**
+     * Generate a unique snowflake. Each snowflake has a different timestamp,
+     * so consecutive guilds are spread across the shards.
+     *
+     * @return The snowflake.
+     */
+    public String nextId() {
+        long count = idCounter.getAndIncrement();
+        return String.valueOf(((idBase + count) << 22) | (count & 0xFFF));
+    }
+
+    /*
+        ------------------------
+                Gateway
+        ------------------------
+     */
+
+    /**
+     * Dispatch an event to the shard of its guild, or to shard 0 if the event has no guild.
+     * Events of shards without a connection are kept, and sent when their session resumes.
+     *
+     * @param type The type of the event, such as {@code MESSAGE_CREATE}.
+     * @param data The data of the event.
+     * @return The number of sessions the event was dispatched to.
+     */
+    public int dispatch(String type, JSONObject data) {
+        String guildId = data.optString("guild_id", null);
+        if (guildId == null && type.startsWith("GUILD_") && guilds.containsKey(data.optString("id"))) {
+            guildId = data.getString("id");
+        }
+        if (guildId == null && channels.containsKey(data.optString("channel_id"))) {
+            guildId = channels.get(data.getString("channel_id")).getString("guild_id");
+        }
+        return gateway.dispatch(type, data, guildId);
+    }
+
+    /**
+     * Dispatch a message create event from a member of the channel's guild.
+     *
+     * @param channelId The id of the text channel.
+     * @param content The content of the message.
+     * @return The message.
+     */
+    public JSONObject dispatchMessage(String channelId, String content) {
+        JSONObject channel = channels.get(channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Unknown channel " + channelId);
+        }
+        List<JSONObject> guildMembers = members.get(channel.getString("guild_id"));
+        JSONObject author = guildMembers.get(guildMembers.size() > 1 ? 1 : 0).getJSONObject("user");
+
+        JSONObject message = buildMessage(channelId, author, content);
+        dispatch("MESSAGE_CREATE", message);
+        return message;
+    }
+
+    private JSONObject buildMessage(String channelId, JSONObject author, String content) {
+        return new JSONObject()
+                .put("id", nextId())
+                .put("channel_id", channelId)
+                .put("author", author)
+                .put("content", content)
+                .put("type", 0)
+                .put("timestamp", timestamp())
+                .put("edited_timestamp", JSONObject.NULL)
+                .put("tts", false)
+                .put("mention_everyone", false)
+                .put("mentions", new JSONArray())
+                .put("mention_roles", new JSONArray())
+                .put("attachments", new JSONArray())
+                .put("embeds", new JSONArray())
+                .put("pinned", false);
+    }
+
+    /**
+     * Close every Gateway connection with a close code, such as 4000 to make the clients resume.
+     *
+     * @param code The close code.
+     */
+    public void disconnectAll(int code) {
+        gateway.disconnectAll(code);
+    }
+
+    /**
+     * Ask every Gateway connection to reconnect and resume, like Discord does before restarting a Gateway server.
+     */
+    public void reconnectAll() {
+        gateway.reconnectAll();
+    }
+
+    /**
+     * Send invalid compressed data to every connection with transport compression.
+     */
+    public void corruptAll() {
+        gateway.corruptAll();
+    }
+
+    /**
+     * Forget every session, so the next resumes are invalid and the clients identify again.
+     */
+    public void invalidateSessions() {
+        gateway.invalidateSessions();
+    }
+
+    /**
+     * Build the ready event of a shard.
+     */
+    JSONObject buildReady(String sessionId, int shardId, int shardCount) {
+        JSONArray unavailable = new JSONArray();
+        for (JSONObject guild : getGuilds(shardId, shardCount)) {
+            unavailable.put(new JSONObject()
+                    .put("id", guild.getString("id"))
+                    .put("unavailable", true));
+        }
+        return new JSONObject()
+                .put("v", JCord.DISCORD_GATEWAY_VERSION)
+                .put("user", self)
+                .put("session_id", sessionId)
+                .put("guilds", unavailable)
+                .put("private_channels", new JSONArray())
+                .put("shard", new JSONArray().put(shardId).put(shardCount))
+                .put("_trace", new JSONArray().put("fake-gateway"));
+    }
+
+    /**
+     * Build the guild create events of a shard.
+     */
+    List<JSONObject> buildGuildCreates(int shardId, int shardCount, int largeThreshold) {
+        List<JSONObject> creates = new ArrayList<>();
+        for (JSONObject guild : getGuilds(shardId, shardCount)) {
+            List<JSONObject> guildMembers = members.get(guild.getString("id"));
+            boolean large = guildMembers.size() > largeThreshold;
+
+            JSONObject create = new JSONObject(guild, JSONObject.getNames(guild))
+                    .put("joined_at", timestamp())
+                    .put("large", large)
+                    .put("unavailable", false)
+                    .put("member_count", guildMembers.size())
+                    .put("members", new JSONArray(large ? guildMembers.subList(0, 1) : guildMembers))
+                    .put("presences", new JSONArray())
+                    .put("voice_states", new JSONArray());
+            creates.add(create);
+        }
+        return creates;
+    }
+
+    /**
+     * Build the member chunks of a guild, answering a request guild members.
+     */
+    List<JSONObject> buildMemberChunks(String guildId, int limit) {
+        List<JSONObject> guildMembers = members.get(guildId);
+        if (guildMembers == null) return Collections.emptyList();
+
+        int count = limit > 0 ? Math.min(limit, guildMembers.size()) : guildMembers.size();
+        List<JSONObject> chunks = new ArrayList<>();
+        for (int from = 0; from < count; from += 1000) {
+            chunks.add(new JSONObject()
+                    .put("guild_id", guildId)
+                    .put("members", new JSONArray(guildMembers.subList(from, Math.min(from + 1000, count)))));
+        }
+        return chunks;
+    }
+
+    private List<JSONObject> getGuilds(int shardId, int shardCount) {
+        List<JSONObject> shardGuilds = new ArrayList<>();
+        synchronized (guilds) {
+            for (JSONObject guild : guilds.values()) {
+                if (getShardId(guild.getString("id"), shardCount) == shardId) {
+                    shardGuilds.add(guild);
+                }
+            }
+        }
+        return shardGuilds;
+    }
+
+    static int getShardId(String guildId, int shardCount) {
+        return (int) ((Long.parseLong(guildId) >> 22) % Math.max(shardCount, 1));
+    }
+
+    long getHeartbeatIntervalMillis() {
+        return heartbeatInterval;
+    }
+
+    /**
+     * Wait for the injected latency.
+     */
+    void delay() {
+        long max = maxLatency;
+        if (max <= 0) return;
+        long latency = minLatency == max ? max : ThreadLocalRandom.current().nextLong(minLatency, max + 1);
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String timestamp() {
+        return OffsetDateTime.now(ZoneOffset.UTC).toString();
+    }
+
+    /*
+        ------------------------
+                Rest Api
+        ------------------------
+     */
+
+    private NanoHTTPD.Response route(NanoHTTPD.IHTTPSession session) throws IOException, NanoHTTPD.ResponseException {
+        String prefix = "/api/v" + JCord.DISCORD_GATEWAY_VERSION;
+        String uri = session.getUri();
+        if (!uri.startsWith(prefix)) {
+            return error(NanoHTTPD.Response.Status.NOT_FOUND, 0, "404: Not Found");
+        }
+        String[] path = uri.substring(prefix.length()).replaceAll("^/+|/+$", "").split("/");
+        NanoHTTPD.Method method = session.getMethod();
+        Map<String, String> params = session.getParms();
+
+        switch (path[0]) {
+            case "gateway":
+                if (method != NanoHTTPD.Method.GET) break;
+                JSONObject gatewayJson = new JSONObject().put("url", getGatewayUrl());
+                if (path.length > 1 && path[1].equals("bot")) {
+                    gatewayJson.put("shards", shards)
+                            .put("session_start_limit", new JSONObject()
+                                    .put("total", 1000)
+                                    .put("remaining", 1000)
+                                    .put("reset_after", 86400000)
+                                    .put("max_concurrency", maxConcurrency));
+                }
+                return json(gatewayJson);
+            case "users":
+                if (method != NanoHTTPD.Method.GET || path.length < 2) break;
+                if (path[1].equals("@me")) {
+                    if (path.length == 2) return json(self);
+                    if (path.length == 3 && path[2].equals("guilds")) return json(listUserGuilds(params));
+                    break;
+                }
+                if (path[1].equals(self.getString("id"))) return json(self);
+                for (List<JSONObject> guildMembers : members.values()) {
+                    for (JSONObject member : guildMembers) {
+                        if (member.getJSONObject("user").getString("id").equals(path[1])) {
+                            return json(member.getJSONObject("user"));
+                        }
+                    }
+                }
+                return error(NanoHTTPD.Response.Status.NOT_FOUND, 10013, "Unknown User");
+            case "guilds":
+                if (method != NanoHTTPD.Method.GET || path.length < 2) break;
+                JSONObject guild = guilds.get(path[1]);
+                if (guild == null) return error(NanoHTTPD.Response.Status.NOT_FOUND, 10004, "Unknown Guild");
+                if (path.length == 2) {
+                    // Like Discord, the guild route has no channels
+                    JSONObject copy = new JSONObject(guild, JSONObject.getNames(guild));
+                    copy.remove("channels");
+                    return json(copy);
+                }
+                if (path[2].equals("channels") && path.length == 3) return json(guild.getJSONArray("channels"));
+                if (path[2].equals("members")) {
+                    List<JSONObject> guildMembers = members.getOrDefault(path[1], Collections.emptyList());
+                    if (path.length == 4) {
+                        for (JSONObject member : guildMembers) {
+                            if (member.getJSONObject("user").getString("id").equals(path[3])) return json(member);
+                        }
+                        return error(NanoHTTPD.Response.Status.NOT_FOUND, 10007, "Unknown Member");
+                    }
+                    return json(listMembers(guildMembers, params));
+                }
+                break;
+            case "channels":
+                if (path.length < 2) break;
+                JSONObject channel = channels.get(path[1]);
+                if (channel == null) return error(NanoHTTPD.Response.Status.NOT_FOUND, 10003, "Unknown Channel");
+                if (path.length == 2 && method == NanoHTTPD.Method.GET) return json(channel);
+                if (path.length == 3 && path[2].equals("messages")) {
+                    if (method == NanoHTTPD.Method.GET) return json(new JSONArray());
+                    if (method == NanoHTTPD.Method.POST) {
+                        Map<String, String> body = new HashMap<>();
+                        session.parseBody(body);
+                        JSONObject message;
+                        try {
+                            message = buildMessage(path[1], self, new JSONObject(body.get("postData")).optString("content", ""));
+                        } catch (JSONException | NullPointerException ex) {
+                            return error(NanoHTTPD.Response.Status.BAD_REQUEST, 50006, "Cannot send an empty message");
+                        }
+                        dispatch("MESSAGE_CREATE", message);
+                        return json(message);
+                    }
+                }
+                break;
+        }
+        return error(NanoHTTPD.Response.Status.NOT_FOUND, 0, "404: Not Found");
+    }
+
+    private JSONArray listUserGuilds(Map<String, String> params) {
+        int limit = parseInt(params.get("limit"), 100, 100);
+        long after = params.containsKey("after") ? Long.parseLong(params.get("after")) : 0;
+
+        JSONArray array = new JSONArray();
+        synchronized (guilds) {
+            for (JSONObject guild : guilds.values()) {
+                if (array.length() >= limit) break;
+                if (Long.parseLong(guild.getString("id")) <= after) continue;
+                array.put(new JSONObject()
+                        .put("id", guild.getString("id"))
+                        .put("name", guild.getString("name"))
+                        .put("icon", JSONObject.NULL)
+                        .put("owner", true)
+                        .put("permissions", 2146958847));
+            }
+        }
+        return array;
+    }
+
+    private JSONArray listMembers(List<JSONObject> guildMembers, Map<String, String> params) {
+        int limit = parseInt(params.get("limit"), 1, 1000);
+        long after = params.containsKey("after") ? Long.parseLong(params.get("after")) : 0;
+
+        JSONArray array = new JSONArray();
+        for (JSONObject member : guildMembers) {
+            if (array.length() >= limit) break;
+            if (Long.parseLong(member.getJSONObject("user").getString("id")) <= after) continue;
+            array.put(member);
+        }
+        return array;
+    }
+
+    private static int parseInt(String value, int fallback, int max) {
+        try {
+            return value == null ? fallback : Math.min(Math.max(Integer.parseInt(value), 1), max);
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    /**
+     * The bucket of a route is its path, with the ids replaced except the major parameter.
+     */
+    private static String getBucket(NanoHTTPD.Method method, String uri) {
+        String[] segments = uri.split("/");
+        StringBuilder bucket = new StringBuilder(method.name());
+        boolean major = false;
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                String parent = segments[i - 1];
+                boolean isMajor = !major && (parent.equals("guilds") || parent.equals("channels") || parent.equals("webhooks"));
+                major |= isMajor;
+                segment = isMajor ? segment : "{id}";
+            }
+            bucket.append('/').append(segment);
+        }
+        return bucket.toString();
+    }
+
+    private NanoHTTPD.Response serve(NanoHTTPD.IHTTPSession session) {
+        requests.incrementAndGet();
+        delay();
+
+        if (forcedRateLimits.get() > 0 && forcedRateLimits.getAndDecrement() > 0) {
+            return tooManyRequests(forcedRetryAfter, false, forcedGlobal);
+        }
+
+        String key = getBucket(session.getMethod(), session.getUri());
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+        int limit = bucketLimit;
+        long now = System.currentTimeMillis();
+
+        long remaining;
+        long resetAt;
+        synchronized (bucket) {
+            if (bucket.resetAt <= now) {
+                bucket.used = 0;
+                bucket.resetAt = now + bucketResetAfter;
+            }
+            if (limit > 0 && bucket.used >= limit) {
+                return tooManyRequests(bucket.resetAt - now, true, false);
+            }
+            bucket.used++;
+            // An unlimited bucket still tells the client it has requests left
+            remaining = limit > 0 ? limit - bucket.used : 999;
+            resetAt = bucket.resetAt;
+        }
+
+        NanoHTTPD.Response response;
+        try {
+            response = route(session);
+        } catch (Exception ex) {
+            LOG.log(LogLevel.ERROR, "Serving " + session.getMethod() + " " + session.getUri(), ex);
+            response = error(NanoHTTPD.Response.Status.INTERNAL_ERROR, 0, "500: Internal Server Error");
+        }
+
+        response.addHeader("X-RateLimit-Bucket", Integer.toHexString(key.hashCode()));
+        response.addHeader("X-RateLimit-Limit", String.valueOf(limit > 0 ? limit : 1000));
+        response.addHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+        response.addHeader("X-RateLimit-Reset-After", String.valueOf(Math.max(resetAt - System.currentTimeMillis(), 0) / 1000.0));
+        return response;
+    }
+
+    private NanoHTTPD.Response tooManyRequests(long retryAfter, boolean bucketLimited, boolean global) {
+        rateLimited.incrementAndGet();
+        NanoHTTPD.Response response = NanoHTTPD.newFixedLengthResponse(TOO_MANY_REQUESTS, "application/json",
+                new JSONObject()
+                        .put("message", "You are being rate limited.")
+                        .put("retry_after", retryAfter)
+                        .put("global", global)
+                        .toString());
+        response.addHeader("Retry-After", String.valueOf(retryAfter));
+        if (global) {
+            response.addHeader("X-RateLimit-Global", "true");
+        } else if (bucketLimited) {
+            response.addHeader("X-RateLimit-Limit", String.valueOf(bucketLimit));
+            response.addHeader("X-RateLimit-Remaining", "0");
+            response.addHeader("X-RateLimit-Reset-After", String.valueOf(retryAfter / 1000.0));
+        }
+        return response;
+    }
+
+    private static NanoHTTPD.Response json(Object json) {
+        return NanoHTTPD.newFixedLengthResponse(NanoHTTPD.Response.Status.OK, "application/json", json.toString());
+    }
+
+    private static NanoHTTPD.Response error(NanoHTTPD.Response.Status status, int code, String message) {
+        return NanoHTTPD.newFixedLengthResponse(status, "application/json",
+                new JSONObject().put("code", code).put("message", message).toString());
+    }
+
+    private static final NanoHTTPD.Response.IStatus TOO_MANY_REQUESTS = new NanoHTTPD.Response.IStatus() {
+        @Override
+        public String getDescription() {
+            return "429 Too Many Requests";
+        }
+
+        @Override
+        public int getRequestStatus() {
+            return 429;
+        }
+    };
+
+    private static final class Bucket {
+        private int used = 0;
+        private long resetAt = 0;
+    }
+
+    private final class Rest extends NanoHTTPD {
+
+        private Rest(int port) {
+            super("127.0.0.1", port);
+        }
+
+        @Override
+        public Response serve(IHTTPSession session) {
+            return FakeDiscordServer.this.serve(session);
+        }
+    }
+
+    /*
+        ------------------------
+                Getters
+        ------------------------
+     */
+
+    /**
+     * @return The base url of the rest api, to use with {@link org.alienideology.jcord.IdentityBuilder#setApiUrl(String)}.
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + rest.getListeningPort() + "/api/v" + JCord.DISCORD_GATEWAY_VERSION;
+    }
+
+    /**
+     * @return The url of the Gateway, which is also returned by {@code GET /gateway}.
+     */
+    public String getGatewayUrl() {
+        return "ws://127.0.0.1:" + gateway.getPort();
+    }
+
+    /**
+     * @return The bot user.
+     */
+    public JSONObject getSelf() {
+        return self;
+    }
+
+    /**
+     * @return The ids of the guilds, in the order they were added.
+     */
+    public List<String> getGuildIds() {
+        synchronized (guilds) {
+            return new ArrayList<>(guilds.keySet());
+        }
+    }
+
+    /**
+     * @param guildId The id of the guild.
+     * @return The ids of the text channels of a guild.
+     */
+    public List<String> getChannelIds(String guildId) {
+        JSONObject guild = guilds.get(guildId);
+        if (guild == null) return Collections.emptyList();
+
+        List<String> ids = new ArrayList<>();
+        JSONArray array = guild.getJSONArray("channels");
+        for (int i = 0; i < array.length(); i++) {
+            ids.add(array.getJSONObject(i).getString("id"));
+        }
+        return ids;
+    }
+
+    /**
+     * @return The number of rest requests served, including rate limited requests.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return The number of rest requests answered with 429.
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * @return The number of open Gateway connections.
+     */
+    public int getConnectionCount() {
+        return gateway.getConnectionCount();
+    }
+
+    /**
+     * @return The number of Gateway payloads received from clients.
+     */
+    public long getReceivedPayloadCount() {
+        return gateway.getReceivedCount();
+    }
+
+    /**
+     * @param op The OP code, such as 8 for member requests.
+     * @return The number of Gateway payloads with the OP code received from clients.
+     */
+    public long getReceivedPayloadCount(int op) {
+        return gateway.getReceivedCount(op);
+    }
+
+    @Override
+    public String toString() {
+        return "FakeDiscordServer{" +
+                "api=" + getApiUrl() +
+                ", gateway=" + getGatewayUrl() +
+                ", guilds=" + guilds.size() +
+                ", connections=" + getConnectionCount() +
+                '}';
+    }
+
+}
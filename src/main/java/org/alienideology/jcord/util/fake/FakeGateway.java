@@ -0,0 +1,514 @@
+package org.alienideology.jcord.util.fake;
+
+import org.alienideology.jcord.util.log.LogLevel;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.Deflater;
+
+/**
+ * FakeGateway - The Gateway of a {@link FakeDiscordServer}, a minimal web socket server.
+ *
+ * Each connection runs on its own daemon thread. Payloads are sent as text frames,
+ * or as binary frames of a single zlib stream when the client connects with {@code compress=zlib-stream}.
+ * Sessions outlive their connections and keep their last dispatches, so a resume replays the missed events.
+ *
+ * @author AlienIdeology
+ */
+final class FakeGateway {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_PAYLOAD = 4 * 1024 * 1024;
+    private static final int HISTORY_SIZE = 1000;
+
+    private final FakeDiscordServer server;
+    private final int port;
+    private ServerSocket serverSocket;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    /* <Session Id, Session> */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLongArray receivedByOp = new AtomicLongArray(16);
+
+    FakeGateway(FakeDiscordServer server, int port) {
+        this.server = server;
+        this.port = port;
+    }
+
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Connection connection = new Connection(serverSocket.accept());
+                    Thread thread = new Thread(connection, "FakeGateway-" + connectionIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (IOException ex) {
+                    if (!serverSocket.isClosed()) {
+                        server.LOG.log(LogLevel.ERROR, "Accepting a Gateway connection", ex);
+                    }
+                }
+            }
+        }, "FakeGateway");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    void stop() {
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        disconnectAll(1001);
+    }
+
+    void disconnectAll(int code) {
+        for (Connection connection : connections) {
+            connection.close(code, "Disconnected by the server");
+        }
+    }
+
+    void reconnectAll() {
+        for (Connection connection : connections) {
+            connection.send(new JSONObject().put("op", 7).put("d", JSONObject.NULL));
+        }
+    }
+
+    void corruptAll() {
+        for (Connection connection : connections) {
+            connection.sendCorrupted();
+        }
+    }
+
+    void invalidateSessions() {
+        sessions.clear();
+    }
+
+    int dispatch(String type, JSONObject data, String guildId) {
+        int count = 0;
+        for (Session session : sessions.values()) {
+            int shardId = guildId == null ? 0 : FakeDiscordServer.getShardId(guildId, session.shardCount);
+            if (shardId == session.shardId) {
+                session.dispatch(type, data);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int getPort() {
+        return serverSocket == null ? port : serverSocket.getLocalPort();
+    }
+
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    long getReceivedCount() {
+        return received.get();
+    }
+
+    long getReceivedCount(int op) {
+        return op < 0 || op >= receivedByOp.length() ? 0 : receivedByOp.get(op);
+    }
+
+    /**
+     * Session - A session created by an identify, which can be resumed by later connections.
+     */
+    private final class Session {
+
+        private final String id;
+        private final int shardId;
+        private final int shardCount;
+
+        private int sequence = 0;
+        private final Deque<JSONObject> history = new ArrayDeque<>();
+        private Connection connection;
+
+        private Session(String id, int shardId, int shardCount) {
+            this.id = id;
+            this.shardId = shardId;
+            this.shardCount = shardCount;
+        }
+
+        private synchronized void dispatch(String type, JSONObject data) {
+            JSONObject payload = new JSONObject()
+                    .put("op", 0)
+                    .put("t", type)
+                    .put("s", ++sequence)
+                    .put("d", data);
+            history.addLast(payload);
+            if (history.size() > HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            if (connection != null) {
+                connection.send(payload);
+            }
+        }
+
+        /**
+         * Attach a connection, and replay the dispatches after a sequence.
+         *
+         * @return False if some dispatches after the sequence are no longer kept.
+         */
+        private synchronized boolean resume(Connection connection, int after) {
+            if (after > sequence || (!history.isEmpty() && history.peekFirst().getInt("s") > after + 1)) {
+                return false;
+            }
+            this.connection = connection;
+            for (JSONObject payload : history) {
+                if (payload.getInt("s") > after) {
+                    connection.send(payload);
+                }
+            }
+            dispatch("RESUMED", new JSONObject()
+                    .put("session_id", id)
+                    .put("_trace", new JSONArray().put("fake-gateway")));
+            return true;
+        }
+
+        private synchronized void detach(Connection connection) {
+            if (this.connection == connection) {
+                this.connection = null;
+            }
+        }
+    }
+
+    /**
+     * Connection - A web socket connection, from the handshake to the close frame.
+     */
+    private final class Connection implements Runnable {
+
+        private final Socket socket;
+        private DataInputStream in;
+        private OutputStream out;
+
+        private Deflater deflater;
+        private final byte[] deflateBuffer = new byte[8192];
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        private Session session;
+        private volatile boolean closed = false;
+
+        private Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            connections.add(this);
+            try {
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new BufferedOutputStream(socket.getOutputStream());
+                if (!handshake()) return;
+
+                send(new JSONObject()
+                        .put("op", 10)
+                        .put("d", new JSONObject()
+                                .put("heartbeat_interval", server.getHeartbeatIntervalMillis())
+                                .put("_trace", new JSONArray().put("fake-gateway"))));
+
+                String message;
+                while (!closed && (message = readMessage()) != null) {
+                    received.incrementAndGet();
+                    handle(message);
+                }
+            } catch (EOFException | SocketException ignored) {
+                // The client left without a close frame
+            } catch (IOException ex) {
+                server.LOG.log(LogLevel.WARN, "Gateway connection failed", ex);
+            } finally {
+                connections.remove(this);
+                if (session != null) session.detach(this);
+                close(1000, "");
+                if (deflater != null) deflater.end();
+            }
+        }
+
+        private boolean handshake() throws IOException {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            int matched = 0;
+            while (matched < 4) {
+                int b = in.read();
+                if (b < 0) throw new EOFException();
+                request.write(b);
+                matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+                if (request.size() > 16 * 1024) return false;
+            }
+
+            String[] lines = new String(request.toByteArray(), StandardCharsets.ISO_8859_1).split("\r\n");
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+                }
+            }
+
+            String key = headers.get("sec-websocket-key");
+            if (!"websocket".equalsIgnoreCase(headers.get("upgrade")) || key == null) {
+                out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                return false;
+            }
+
+            if (lines[0].contains("compress=zlib-stream")) {
+                deflater = new Deflater();
+            }
+
+            String accept;
+            try {
+                accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                        .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+            out.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                    "Upgrade: websocket\r\n" +
+                    "Connection: Upgrade\r\n" +
+                    "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            return true;
+        }
+
+        private void handle(String message) {
+            JSONObject payload;
+            try {
+                payload = new JSONObject(message);
+            } catch (JSONException ex) {
+                close(4002, "Decode error");
+                return;
+            }
+            int op = payload.optInt("op", -1);
+            JSONObject data = payload.optJSONObject("d");
+            if (op >= 0 && op < receivedByOp.length()) {
+                receivedByOp.incrementAndGet(op);
+            }
+
+            if (session == null && op != 1 && op != 2 && op != 6) {
+                close(4003, "Not authenticated");
+                return;
+            }
+
+            switch (op) {
+                case 1: // Heartbeat
+                    server.delay();
+                    send(new JSONObject().put("op", 11));
+                    break;
+                case 2: { // Identify
+                    if (session != null) {
+                        close(4005, "Already authenticated");
+                        return;
+                    } else if (data == null) {
+                        close(4002, "Decode error");
+                        return;
+                    }
+                    JSONArray shard = data.optJSONArray("shard");
+                    int shardId = shard == null ? 0 : shard.getInt(0);
+                    int shardCount = shard == null ? 1 : shard.getInt(1);
+                    if (shardId < 0 || shardId >= shardCount) {
+                        close(4010, "Invalid shard");
+                        return;
+                    }
+
+                    server.delay();
+                    session = new Session(UUID.randomUUID().toString().replace("-", ""), shardId, shardCount);
+                    sessions.put(session.id, session);
+                    synchronized (session) {
+                        session.connection = this;
+                        session.dispatch("READY", server.buildReady(session.id, shardId, shardCount));
+                        int largeThreshold = data.optInt("large_threshold", 50);
+                        for (JSONObject create : server.buildGuildCreates(shardId, shardCount, largeThreshold)) {
+                            session.dispatch("GUILD_CREATE", create);
+                        }
+                    }
+                    break;
+                }
+                case 6: { // Resume
+                    server.delay();
+                    Session resumed = data == null ? null : sessions.get(data.optString("session_id"));
+                    if (resumed != null && resumed.resume(this, data.optInt("seq"))) {
+                        session = resumed;
+                    } else {
+                        send(new JSONObject().put("op", 9).put("d", false));
+                    }
+                    break;
+                }
+                case 8: { // Request Guild Members
+                    Object guildIds = data == null ? null : data.opt("guild_id");
+                    JSONArray ids = guildIds instanceof JSONArray ? (JSONArray) guildIds : new JSONArray().put(guildIds);
+                    for (int i = 0; i < ids.length(); i++) {
+                        for (JSONObject chunk : server.buildMemberChunks(ids.optString(i), data.optInt("limit"))) {
+                            session.dispatch("GUILD_MEMBERS_CHUNK", chunk);
+                        }
+                    }
+                    break;
+                }
+                case 3: // Status Update
+                case 4: // Voice State Update
+                    break;
+                default:
+                    close(4001, "Unknown opcode");
+            }
+        }
+
+        /**
+         * Read the next text or binary message, answering the control frames in between.
+         *
+         * @return The message, or null if the connection closed.
+         */
+        private String readMessage() throws IOException {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                boolean fin = (first & 0x80) != 0;
+                int opcode = first & 0x0F;
+
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = in.readUnsignedShort();
+                } else if (length == 127) {
+                    length = in.readLong();
+                }
+                if (length > MAX_PAYLOAD || message.size() + length > MAX_PAYLOAD) {
+                    close(1009, "Payload too large");
+                    return null;
+                }
+
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    in.readFully(mask);
+                }
+                byte[] content = new byte[(int) length];
+                in.readFully(content);
+                for (int i = 0; i < content.length; i++) {
+                    content[i] ^= mask[i % 4];
+                }
+
+                switch (opcode) {
+                    case 0x8: // Close
+                        int code = content.length >= 2 ? ((content[0] & 0xFF) << 8) | (content[1] & 0xFF) : 1000;
+                        close(code, "");
+                        return null;
+                    case 0x9: // Ping
+                        writeFrame(0xA, content);
+                        continue;
+                    case 0xA: // Pong
+                        continue;
+                    default:
+                        message.write(content);
+                        if (fin) {
+                            return new String(message.toByteArray(), StandardCharsets.UTF_8);
+                        }
+                }
+            }
+        }
+
+        private synchronized void send(JSONObject payload) {
+            if (closed) return;
+            byte[] data = payload.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                if (deflater == null) {
+                    writeFrame(0x1, data);
+                    return;
+                }
+
+                // Every message ends with a sync flush, which is the zlib suffix clients wait for
+                compressed.reset();
+                deflater.setInput(data);
+                int length;
+                do {
+                    length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(deflateBuffer, 0, length);
+                } while (length == deflateBuffer.length);
+                writeFrame(0x2, compressed.toByteArray());
+            } catch (IOException ex) {
+                closeSocket();
+            }
+        }
+
+        /**
+         * Send a binary frame which ends with the zlib suffix, but is not valid deflate data.
+         */
+        private synchronized void sendCorrupted() {
+            if (closed || deflater == null) return;
+            try {
+                writeFrame(0x2, new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, (byte) 0xFF, (byte) 0xFF});
+            } catch (IOException ex) {
+                closeSocket();
+            }
+        }
+
+        private synchronized void writeFrame(int opcode, byte[] content) throws IOException {
+            out.write(0x80 | opcode);
+            if (content.length < 126) {
+                out.write(content.length);
+            } else if (content.length <= 0xFFFF) {
+                out.write(126);
+                out.write(content.length >>> 8);
+                out.write(content.length);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) content.length >>> shift));
+                }
+            }
+            out.write(content);
+            out.flush();
+        }
+
+        private synchronized void close(int code, String reason) {
+            if (closed) return;
+            try {
+                byte[] text = reason.getBytes(StandardCharsets.UTF_8);
+                byte[] content = new byte[text.length + 2];
+                content[0] = (byte) (code >>> 8);
+                content[1] = (byte) code;
+                System.arraycopy(text, 0, content, 2, text.length);
+                if (out != null) writeFrame(0x8, content);
+            } catch (IOException ignored) {
+            }
+            closeSocket();
+        }
+
+        private void closeSocket() {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
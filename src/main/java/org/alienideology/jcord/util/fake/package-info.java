@@ -0,0 +1,10 @@
+/**
+ * A fake Discord server for load and integration tests.
+ *
+ * {@link org.alienideology.jcord.util.fake.FakeDiscordServer} serves the rest api and the Gateway on localhost,
+ * with synthetic guilds, configurable rate limits and latency.
+ * Identities connect to it by {@link org.alienideology.jcord.IdentityBuilder#setApiUrl(String)}.
+ *
+ * @author AlienIdeology
+ */
+package org.alienideology.jcord.util.fake;
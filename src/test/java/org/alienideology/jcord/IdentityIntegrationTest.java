@@ -0,0 +1,345 @@
+package org.alienideology.jcord;
+
+import com.mashape.unirest.http.HttpMethod;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.GetRequest;
+import org.alienideology.jcord.event.DispatcherAdaptor;
+import org.alienideology.jcord.event.EventManager;
+import org.alienideology.jcord.event.message.MessageCreateEvent;
+import org.alienideology.jcord.handle.guild.IGuild;
+import org.alienideology.jcord.internal.gateway.GatewayAdaptor;
+import org.alienideology.jcord.internal.gateway.GatewaySendQueue;
+import org.alienideology.jcord.internal.gateway.OPCode;
+import org.alienideology.jcord.internal.gateway.SessionStore;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.rest.HttpPath;
+import org.alienideology.jcord.internal.rest.HttpTransport;
+import org.alienideology.jcord.internal.rest.PooledHttpTransport;
+import org.alienideology.jcord.internal.rest.Requester;
+import org.alienideology.jcord.util.fake.FakeDiscordServer;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.apache.http.client.config.RequestConfig;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * IdentityIntegrationTest - Runs identities against a {@link FakeDiscordServer}.
+ *
+ * @author AlienIdeology
+ */
+public class IdentityIntegrationTest {
+
+    private static final String TOKEN = "abcdefghijklmnopqrstuvwx.abcdef.abcdefghijklmnopqrstuvwxyza";
+
+    private FakeDiscordServer server;
+    private IdentityImpl identity;
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        server = new FakeDiscordServer().setHeartbeatInterval(45_000);
+        server.LOG.setIgnoreLevels(LogLevel.DEBUG, LogLevel.TRACE);
+    }
+
+    @After
+    public void tearDown() {
+        if (identity != null) {
+            identity.logout();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testLoginReady() throws Exception {
+        server.addGuilds(5, 2, 20).start();
+        login(1, true);
+
+        assertTrue(identity.CONNECTION.isReady());
+        assertEquals(5, identity.getGuilds().size());
+        for (String guildId : server.getGuildIds()) {
+            // The generated members and the bot
+            assertEquals(21, identity.getGuild(guildId).getMembers().size());
+            assertEquals(2, identity.getGuild(guildId).getTextChannels().size());
+        }
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.IDENTIFY.key));
+    }
+
+    @Test
+    public void testShardedLogin() throws Exception {
+        server.setShards(2, 1).addGuilds(10, 1, 5).start();
+        login(2, true);
+
+        assertEquals(2, identity.getShardManager().getShards().size());
+        for (GatewayAdaptor shard : identity.getShardManager().getShards()) {
+            assertTrue(shard.getConnection().isReady());
+        }
+        assertEquals(10, identity.getGuilds().size());
+        assertEquals(2, server.getReceivedPayloadCount(OPCode.IDENTIFY.key));
+    }
+
+    @Test
+    public void testResumeAfterReconnect() throws Exception {
+        server.addGuilds(2, 1, 5).start();
+        login(1, true);
+        GatewayAdaptor gateway = identity.getGateway();
+        String sessionId = gateway.getSessionId();
+        String channelId = server.getChannelIds(server.getGuildIds().get(0)).get(0);
+
+        server.dispatchMessage(channelId, "before");
+        await(() -> messages.contains("before"));
+
+        // Discord asks the client to reconnect, the event sent in between is replayed by the resume
+        server.reconnectAll();
+        server.dispatchMessage(channelId, "missed");
+        await(() -> messages.contains("missed") && identity.CONNECTION.isReady());
+
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.IDENTIFY.key));
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.RESUME.key));
+        assertEquals(sessionId, gateway.getSessionId());
+        assertEquals(1, messages.stream().filter("missed"::equals).count());
+    }
+
+    @Test
+    public void testCorruptedStreamResumes() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, true);
+        String channelId = server.getChannelIds(server.getGuildIds().get(0)).get(0);
+
+        // The rest of the zlib stream cannot be decoded, the client reconnects and the resume replays the message
+        server.corruptAll();
+        server.dispatchMessage(channelId, "after");
+        await(() -> messages.contains("after") && identity.CONNECTION.isReady());
+
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.IDENTIFY.key));
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.RESUME.key));
+    }
+
+    @Test
+    public void testInvalidStoredSessionRebuildsCache() throws Exception {
+        server.addGuilds(3, 1, 5).start();
+        File file = File.createTempFile("jcord-sessions", ".json");
+        assertTrue(file.delete());
+        SessionStore store = new SessionStore(file);
+        login(1, false, store);
+        identity.logout();
+        assertTrue(file.exists());
+
+        // The stored session cannot be resumed, so the guilds restored over REST are built again by the guild creates.
+        // Like Discord's, the guild route of the fake server has no channels, unlike the guild creates
+        server.invalidateSessions();
+        login(1, false, store);
+
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.RESUME.key));
+        assertEquals(2, server.getReceivedPayloadCount(OPCode.IDENTIFY.key));
+        assertEquals(3, identity.getGuilds().size());
+        for (IGuild guild : identity.getGuilds()) {
+            assertEquals(1, guild.getTextChannels().size());
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testBucketRateLimitIsRetried() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, false);
+        String guildId = server.getGuildIds().get(0);
+
+        server.rateLimitNext(2, 300, false);
+        long start = System.currentTimeMillis();
+        JSONObject guild = new Requester(identity, HttpPath.Guild.GET_GUILD).request(guildId).getAsJSONObject();
+
+        assertEquals(guildId, guild.getString("id"));
+        assertEquals(2, server.getRateLimitedCount());
+        assertTrue(System.currentTimeMillis() - start >= 600);
+    }
+
+    @Test
+    public void testGlobalRateLimitIsRetried() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, false);
+        String guildId = server.getGuildIds().get(0);
+
+        server.rateLimitNext(1, 500, true);
+        long start = System.currentTimeMillis();
+        JSONObject guild = new Requester(identity, HttpPath.Guild.GET_GUILD).request(guildId).getAsJSONObject();
+
+        assertEquals(guildId, guild.getString("id"));
+        assertEquals(1, server.getRateLimitedCount());
+        assertTrue(System.currentTimeMillis() - start >= 500);
+    }
+
+    @Test
+    public void testBucketLimitIsRespected() throws Exception {
+        server.setRateLimit(2, 500).addGuilds(1, 1, 5).start();
+        login(1, false);
+        String guildId = server.getGuildIds().get(0);
+
+        for (int i = 0; i < 6; i++) {
+            new Requester(identity, HttpPath.Guild.GET_GUILD).request(guildId).getAsJSONObject();
+        }
+        assertEquals(0, server.getRateLimitedCount());
+    }
+
+    @Test
+    public void testRequestTimeoutOverride() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, false);
+        String guildId = server.getGuildIds().get(0);
+        server.setLatency(500, 500);
+
+        RequestConfig config = RequestConfig.copy(((PooledHttpTransport) identity.getTransport()).getDefaultRequestConfig())
+                .setSocketTimeout(100)
+                .build();
+        try {
+            new Requester(identity, HttpPath.Guild.GET_GUILD).setRequestConfig(config).request(guildId).getAsJSONObject();
+            fail("The request did not time out");
+        } catch (RuntimeException expected) {
+            // Timed out
+        }
+        assertEquals(guildId, new Requester(identity, HttpPath.Guild.GET_GUILD).request(guildId).getAsJSONObject().getString("id"));
+    }
+
+    @Test
+    public void testLogoutShutsDownOwnTransport() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, false);
+        HttpTransport transport = identity.getTransport();
+
+        identity.logout();
+        assertNotSame(transport, identity.getTransport());
+        try {
+            transport.execute(new GetRequest(HttpMethod.GET, server.getApiUrl() + "/gateway"), String.class);
+            fail("The transport is not shut down");
+        } catch (UnirestException | IllegalStateException expected) {
+            // Shut down
+        }
+    }
+
+    @Test
+    public void testMemberRequestsAreBatched() throws Exception {
+        server.addGuilds(60, 1, JCord.GUILD_MEMBERS_LARGE_THRESHOLD + 11).start();
+        login(1, false);
+
+        await(() -> server.getReceivedPayloadCount(OPCode.REQUEST_GUILD_MEMBERS.key) >= 2
+                && identity.getGateway().getSendQueue().size() == 0);
+        Thread.sleep(GatewaySendQueue.MEMBER_REQUEST_LINGER);
+
+        // One request of 50 guilds and one of 10 guilds
+        assertEquals(2, server.getReceivedPayloadCount(OPCode.REQUEST_GUILD_MEMBERS.key));
+    }
+
+    @Test
+    public void testRestoredLargeGuildsRequestMembers() throws Exception {
+        server.addGuilds(3, 1, JCord.GUILD_MEMBERS_LARGE_THRESHOLD + 11).start();
+        File file = File.createTempFile("jcord-sessions", ".json");
+        assertTrue(file.delete());
+        SessionStore store = new SessionStore(file);
+        login(1, false, store);
+        await(() -> server.getReceivedPayloadCount(OPCode.REQUEST_GUILD_MEMBERS.key) == 1);
+        identity.logout();
+
+        // The resumed session receives no guild creates, the restored large guilds are requested in one payload
+        login(1, false, store);
+        await(() -> server.getReceivedPayloadCount(OPCode.REQUEST_GUILD_MEMBERS.key) == 2);
+
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.RESUME.key));
+        file.delete();
+    }
+
+    @Test
+    public void testRestoreDoesNotBlockLogin() throws Exception {
+        server.addGuilds(8, 1, 5).start();
+        File file = File.createTempFile("jcord-sessions", ".json");
+        assertTrue(file.delete());
+        SessionStore store = new SessionStore(file);
+        login(1, false, store);
+        identity.logout();
+
+        // Rebuilding the guilds one by one takes three requests per guild
+        server.setLatency(200, 200);
+        long start = System.currentTimeMillis();
+        login(1, false, store, true);
+        assertTrue(System.currentTimeMillis() - start < 8 * 3 * 200);
+
+        await(() -> identity.getGuilds().size() == 8 && identity.CONNECTION.isReady());
+        assertTrue(System.currentTimeMillis() - start < 8 * 3 * 200);
+        assertEquals(1, server.getReceivedPayloadCount(OPCode.RESUME.key));
+        file.delete();
+    }
+
+    @Test
+    public void testSendQueueHoldsBurst() throws Exception {
+        server.addGuilds(1, 1, 5).start();
+        login(1, false);
+        GatewayAdaptor gateway = identity.getGateway();
+
+        for (int i = 0; i < 200; i++) {
+            gateway.send(OPCode.VOICE_STATE_UPDATE, new JSONObject().put("guild_id", server.getGuildIds().get(0)));
+        }
+        await(() -> server.getReceivedPayloadCount(OPCode.VOICE_STATE_UPDATE.key) >= GatewaySendQueue.LIMIT - GatewaySendQueue.RESERVED - 1);
+        Thread.sleep(500);
+
+        // The payloads beyond the limit wait, and the connection stays open
+        assertTrue(server.getReceivedPayloadCount() <= GatewaySendQueue.LIMIT - GatewaySendQueue.RESERVED);
+        assertNotEquals(0, gateway.getSendQueue().size());
+        assertTrue(identity.CONNECTION.isReady());
+
+        // Heartbeats use the reserved sends
+        long heartbeats = server.getReceivedPayloadCount(OPCode.HEARTBEAT.key);
+        gateway.send(OPCode.HEARTBEAT, null);
+        await(() -> server.getReceivedPayloadCount(OPCode.HEARTBEAT.key) > heartbeats);
+    }
+
+    /* ---- Internal Methods ---- */
+
+    private void login(int shards, boolean transportCompression) throws Exception {
+        login(shards, transportCompression, null);
+    }
+
+    private void login(int shards, boolean transportCompression, SessionStore store) throws Exception {
+        login(shards, transportCompression, store, false);
+    }
+
+    private void login(int shards, boolean transportCompression, SessionStore store, boolean async) throws Exception {
+        EventManager manager = new EventManager();
+        manager.registerDispatcherAdaptors(new DispatcherAdaptor() {
+            @Override
+            public void onMessageCreate(MessageCreateEvent event) {
+                messages.add(event.getMessage().getContent());
+            }
+        });
+        identity = (IdentityImpl) new IdentityBuilder()
+                .setIdentityType(IdentityType.BOT)
+                .useToken(TOKEN)
+                .setApiUrl(server.getApiUrl())
+                .setShardCount(shards)
+                .setTransportCompression(transportCompression)
+                .setEventManager(manager)
+                .setSessionStore(store)
+                .setLogger(logger -> logger.setIgnoreLevels(LogLevel.DEBUG, LogLevel.TRACE))
+                .build(async);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+}
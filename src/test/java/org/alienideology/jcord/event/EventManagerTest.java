@@ -0,0 +1,135 @@
+package org.alienideology.jcord.event;
+
+import com.neovisionaries.ws.client.WebSocketFactory;
+import org.alienideology.jcord.IdentityType;
+import org.alienideology.jcord.event.guild.GuildEvent;
+import org.alienideology.jcord.handle.guild.IGuild;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.internal.object.guild.Guild;
+import org.alienideology.jcord.util.log.Logger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EventManagerTest - Invokes the listeners of each guild in order on the dispatch lanes.
+ *
+ * @author AlienIdeology
+ */
+public class EventManagerTest {
+
+    private static final int GUILDS = 8;
+    private static final int EVENTS = 50;
+
+    private final IdentityImpl identity = new IdentityImpl(IdentityType.BOT,
+            "abcdefghijklmnopqrstuvwx.abcdef.abcdefghijklmnopqrstuvwxyza", new WebSocketFactory(), new Logger("EventManagerTest"));
+
+    @Test
+    public void testLanesKeepGuildOrder() throws Exception {
+        EventManager manager = new EventManager().setDispatchLanes(4, 1000, EventManager.RejectionPolicy.CALLER_RUNS);
+        Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(GUILDS * EVENTS);
+        manager.registerDispatcherAdaptors(new DispatcherAdaptor() {
+            @Override
+            public void onGuildEvent(GuildEvent event) {
+                String id = event.getGuild().getId();
+                // Listeners of other lanes run in between
+                if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                    Thread.yield();
+                }
+                sequences.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).add(event.getSequence());
+                threads.merge(id, Thread.currentThread().getName(), (previous, current) -> previous.equals(current) ? previous : "mixed");
+                latch.countDown();
+            }
+        });
+
+        List<IGuild> guilds = new ArrayList<>();
+        for (int i = 0; i < GUILDS; i++) {
+            guilds.add(new Guild(identity, String.valueOf(1000 + i), true));
+        }
+        for (int sequence = 0; sequence < EVENTS; sequence++) {
+            for (IGuild guild : guilds) {
+                manager.dispatchEvent(new GuildEvent(identity, sequence, guild));
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        for (IGuild guild : guilds) {
+            List<Integer> received = sequences.get(guild.getId());
+            assertEquals(EVENTS, received.size());
+            for (int i = 0; i < EVENTS; i++) {
+                assertEquals(i, (int) received.get(i));
+            }
+            assertTrue(threads.get(guild.getId()).startsWith("EventLane-"));
+        }
+    }
+
+    @Test
+    public void testSubscribersRemovedWhileDispatching() {
+        EventManager manager = new EventManager().setDispatchPool(0, 1, EventManager.RejectionPolicy.CALLER_RUNS);
+        AtomicInteger invoked = new AtomicInteger();
+        manager.registerEventSubscribers(new FirstSubscriber(manager, invoked), new SecondSubscriber(manager, invoked));
+
+        // Each subscriber removes both of them while the event is dispatched
+        IGuild guild = new Guild(identity, "1000", true);
+        manager.dispatchEvent(new GuildEvent(identity, 0, guild));
+        int count = invoked.get();
+        assertTrue(count >= 1);
+
+        manager.dispatchEvent(new GuildEvent(identity, 1, guild));
+        assertEquals(count, invoked.get());
+    }
+
+    public abstract static class RemovingSubscriber {
+
+        private final EventManager manager;
+        private final AtomicInteger invoked;
+
+        RemovingSubscriber(EventManager manager, AtomicInteger invoked) {
+            this.manager = manager;
+            this.invoked = invoked;
+        }
+
+        void removeAll() {
+            invoked.incrementAndGet();
+            manager.deregisterEventSubscribers(manager.getEventSubscribers().toArray());
+        }
+    }
+
+    public static class FirstSubscriber extends RemovingSubscriber {
+
+        FirstSubscriber(EventManager manager, AtomicInteger invoked) {
+            super(manager, invoked);
+        }
+
+        @EventSubscriber
+        public void onGuildEvent(GuildEvent event) {
+            removeAll();
+        }
+    }
+
+    public static class SecondSubscriber extends RemovingSubscriber {
+
+        SecondSubscriber(EventManager manager, AtomicInteger invoked) {
+            super(manager, invoked);
+        }
+
+        @EventSubscriber
+        public void onGuildEvent(GuildEvent event) {
+            removeAll();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DispatchFilterTest - Peeks the headers of payloads and ignores dispatches.
+ *
+ * @author AlienIdeology
+ */
+public class DispatchFilterTest {
+
+    @Test
+    public void testPeekDispatch() {
+        DispatchFilter.Header header = DispatchFilter.peek("{\"t\":\"TYPING_START\",\"s\":42,\"op\":0,\"d\":{}}");
+        assertEquals("TYPING_START", header.getType());
+        assertEquals(42, header.getSequence());
+    }
+
+    @Test
+    public void testPeekIgnoresNestedFields() {
+        // The nested "t" and "s" belong to the data, and the fields come after it
+        DispatchFilter.Header header = DispatchFilter.peek(
+                "{\"op\":0,\"d\":{\"t\":\"NESTED\",\"s\":1,\"content\":\"\\\"t\\\":\\\"ESCAPED\\\"\",\"list\":[{\"s\":2}]},\"s\":7,\"t\":\"MESSAGE_CREATE\"}");
+        assertEquals("MESSAGE_CREATE", header.getType());
+        assertEquals(7, header.getSequence());
+    }
+
+    @Test
+    public void testPeekNonDispatch() {
+        DispatchFilter.Header header = DispatchFilter.peek("{\"t\":null,\"s\":null,\"op\":11,\"d\":null}");
+        assertNull(header.getType());
+        assertEquals(-1, header.getSequence());
+    }
+
+    @Test
+    public void testIgnored() {
+        DispatchFilter filter = new DispatchFilter(Arrays.asList("PRESENCE_UPDATE", "TYPING_START"));
+        assertTrue(filter.isIgnored("TYPING_START"));
+        assertFalse(filter.isIgnored("MESSAGE_CREATE"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiredCannotBeIgnored() {
+        new DispatchFilter(Collections.singletonList("READY"));
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.alienideology.jcord.IdentityBuilder;
+import org.alienideology.jcord.IdentityType;
+import org.alienideology.jcord.internal.object.IdentityImpl;
+import org.alienideology.jcord.util.fake.FakeDiscordServer;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GatewayParseBenchmark - Measures the allocation of handling a Gateway event.
+ *
+ * A session with a {@link FakeDiscordServer} records {@code MESSAGE_CREATE} dispatches,
+ * then the recording is replayed through {@link GatewayAdaptor} by a {@link GatewayReplayer},
+ * and the bytes allocated by the replaying thread are divided by the number of events.
+ * Before each payload was parsed once, {@link GatewayAdaptor} built a second {@link JSONObject} from the same text,
+ * which the benchmark measures as the saved allocation per event.
+ *
+ * Run with {@code gradle gatewayBenchmark}, or run the main method with the test classpath.
+ * The arguments are the number of events and the number of measured replays, 20000 and 5 by default.
+ *
+ * @author AlienIdeology
+ */
+public final class GatewayParseBenchmark {
+
+    private static final String TOKEN = "abcdefghijklmnopqrstuvwx.abcdef.abcdefghijklmnopqrstuvwxyza";
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File file = File.createTempFile("jcord-benchmark", ".jcgr");
+        file.deleteOnExit();
+
+        try (FakeDiscordServer server = new FakeDiscordServer().setHeartbeatInterval(45_000).addGuilds(1, 1, 50).start()) {
+            server.LOG.setIgnoreLevels(LogLevel.INFO, LogLevel.DEBUG, LogLevel.TRACE);
+            IdentityImpl identity = (IdentityImpl) new IdentityBuilder()
+                    .setIdentityType(IdentityType.BOT)
+                    .useToken(TOKEN)
+                    .setApiUrl(server.getApiUrl())
+                    .setTransportCompression(false)
+                    .setLogger(logger -> logger.setIgnoreLevels(LogLevel.INFO, LogLevel.DEBUG, LogLevel.TRACE))
+                    .build(false);
+
+            // Record the events of the ready connection only, so the replay does not build the guilds again.
+            // The connection is not compressed, since a zlib stream cannot be decoded from its middle
+            GatewayRecorder recorder = new GatewayRecorder(file);
+            recorder.recordConnected(0, 1, false);
+            identity.getShardManager().setRecorder(recorder);
+            String channelId = server.getChannelIds(server.getGuildIds().get(0)).get(0);
+            for (int i = 0; i < events; i++) {
+                server.dispatchMessage(channelId, "Benchmark message " + i);
+            }
+            while (recorder.getFrameCount() < events + 1) {
+                Thread.sleep(50);
+            }
+            identity.getShardManager().setRecorder(null);
+            recorder.close();
+
+            List<String> payloads = readPayloads(file);
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            GatewayReplayer replayer = new GatewayReplayer(file);
+
+            // Warm up, then measure
+            replayer.replay(identity, false);
+            long replayed = 0;
+            long allocated = 0;
+            long elapsed = 0;
+            for (int i = 0; i < rounds; i++) {
+                long before = threads.getThreadAllocatedBytes(thread);
+                GatewayReplayer.Result result = replayer.replay(identity, false);
+                allocated += threads.getThreadAllocatedBytes(thread) - before;
+                replayed += result.getFrames() - 1;
+                elapsed += result.getElapsed();
+            }
+
+            long keys = 0; // Keeps the parsed objects from being optimized away
+            long parseAllocated = 0;
+            for (int i = 0; i <= rounds; i++) {
+                long before = threads.getThreadAllocatedBytes(thread);
+                for (String payload : payloads) {
+                    keys += new JSONObject(payload).length();
+                }
+                if (i > 0) parseAllocated += threads.getThreadAllocatedBytes(thread) - before;
+            }
+
+            long perEvent = allocated / replayed;
+            long savedPerEvent = parseAllocated / ((long) payloads.size() * rounds);
+            System.out.println("Events replayed:            " + replayed + " (" + Math.round(replayed * 1e9 / elapsed) + " per second)");
+            System.out.println("Allocated per event:        " + perEvent + " bytes");
+            System.out.println("Second parse per event:     " + savedPerEvent + " bytes");
+            System.out.println("Allocated with two parses:  " + (perEvent + savedPerEvent) + " bytes");
+            System.out.println("Saved by parsing once:      " + Math.round(100.0 * savedPerEvent / (perEvent + savedPerEvent)) + "%"
+                    + (keys > 0 ? "" : " (no payload parsed)"));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Read the text frames of a recording, in the format of {@link GatewayRecorder}.
+     */
+    private static List<String> readPayloads(File file) throws IOException {
+        List<String> payloads = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.readInt();
+            while (true) {
+                try {
+                    in.readLong();
+                } catch (EOFException end) {
+                    break;
+                }
+                byte type = in.readByte();
+                in.readUnsignedShort();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                if (type == GatewayRecorder.TEXT) {
+                    payloads.add(new String(content, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return payloads;
+    }
+
+}
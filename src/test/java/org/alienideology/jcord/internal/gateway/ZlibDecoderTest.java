@@ -0,0 +1,94 @@
+package org.alienideology.jcord.internal.gateway;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ZlibDecoderTest - Decodes the frames of zlib streams and compressed payloads.
+ *
+ * @author AlienIdeology
+ */
+public class ZlibDecoderTest {
+
+    private final Deflater deflater = new Deflater();
+    private ZlibDecoder decoder;
+
+    @After
+    public void tearDown() {
+        deflater.end();
+        if (decoder != null) {
+            decoder.close();
+        }
+    }
+
+    @Test
+    public void testStreamBuffersFrames() throws Exception {
+        decoder = new ZlibDecoder(true);
+        assertEquals("{\"op\":10}", decoder.decode(flush("{\"op\":10}")));
+
+        // The second payload uses the context of the first one, and is split into two frames
+        byte[] payload = flush("{\"op\":0,\"t\":\"READY\"}");
+        int half = payload.length / 2;
+        assertNull(decoder.decode(Arrays.copyOfRange(payload, 0, half)));
+        assertTrue(decoder.isBuffering());
+        assertEquals("{\"op\":0,\"t\":\"READY\"}", decoder.decode(Arrays.copyOfRange(payload, half, payload.length)));
+        assertFalse(decoder.isBuffering());
+    }
+
+    @Test
+    public void testInvalidStreamResets() throws Exception {
+        decoder = new ZlibDecoder(true);
+        assertNull(decoder.decode(new byte[]{1, 2, 3}));
+        try {
+            decoder.decode(new byte[]{4, 0, 0, (byte) 0xFF, (byte) 0xFF});
+            fail("The stream is not invalid");
+        } catch (DataFormatException expected) {
+            // Reset
+        }
+        assertFalse(decoder.isBuffering());
+
+        // A new connection starts a new stream
+        assertEquals("{\"op\":11}", decoder.decode(flush("{\"op\":11}")));
+    }
+
+    @Test
+    public void testPayloadCompression() throws Exception {
+        decoder = new ZlibDecoder(false);
+        assertEquals("{\"op\":10}", decoder.decode(finish("{\"op\":10}")));
+        assertEquals("{\"op\":11}", decoder.decode(finish("{\"op\":11}")));
+    }
+
+    /**
+     * Compress a payload of a zlib stream, which ends with the suffix.
+     */
+    private byte[] flush(String json) {
+        deflater.setInput(json.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[1024];
+        int length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Compress a payload as a complete zlib stream.
+     */
+    private byte[] finish(String json) {
+        deflater.reset();
+        deflater.setInput(json.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        byte[] buffer = new byte[1024];
+        int length = deflater.deflate(buffer);
+        return Arrays.copyOf(buffer, length);
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.alienideology.jcord.internal.object.channel;
+
+import org.alienideology.jcord.util.DataUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * MessagePurgerTest - Splits messages into bulk deletes and single deletes by their age.
+ *
+ * @author AlienIdeology
+ */
+public class MessagePurgerTest {
+
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    public void testBatchesOfTwoToHundred() {
+        List<List<String>> batches = MessagePurger.getBatches(ids(201, TimeUnit.HOURS.toMillis(1)), now);
+        assertEquals(3, batches.size());
+        assertEquals(100, batches.get(0).size());
+        assertEquals(100, batches.get(1).size());
+
+        // The last message cannot be bulk deleted alone
+        assertEquals(1, batches.get(2).size());
+
+        assertEquals(2, MessagePurger.getBatches(ids(102, TimeUnit.HOURS.toMillis(1)), now).get(1).size());
+    }
+
+    @Test
+    public void testOldMessagesAreDeletedOneByOne() {
+        List<String> young = ids(3, TimeUnit.DAYS.toMillis(1));
+        List<String> old = ids(2, TimeUnit.DAYS.toMillis(15));
+        List<String> ids = new ArrayList<>(old);
+        ids.addAll(young);
+
+        List<List<String>> batches = MessagePurger.getBatches(ids, now);
+        assertEquals(Arrays.asList(young, Collections.singletonList(old.get(0)), Collections.singletonList(old.get(1))), batches);
+    }
+
+    @Test
+    public void testMarginBeforeTwoWeeks() {
+        // Messages close to two weeks old may be too old by the time the request is sent
+        List<String> ids = ids(2, TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(1));
+        assertEquals(2, MessagePurger.getBatches(ids, now).size());
+    }
+
+    /**
+     * @return The ids of messages created some time ago, from the newest to the oldest.
+     */
+    private List<String> ids(int count, long age) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long created = now - age - i;
+            ids.add(String.valueOf((created - DataUtils.DISCORD_EPOCH) << 22 | i));
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.alienideology.jcord.internal.rest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * HttpPathTest - Compiles paths and their routes.
+ *
+ * @author AlienIdeology
+ */
+public class HttpPathTest {
+
+    @Test
+    public void testCompile() {
+        assertEquals(HttpPath.DISCORD_API_URL + "/channels/1/messages/2",
+                HttpPath.Channel.GET_CHANNEL_MESSAGE.compile("1", "2"));
+        assertEquals(HttpPath.DISCORD_API_URL + "/gateway", HttpPath.Gateway.GET_GATEWAY.compile());
+        assertEquals(2, HttpPath.Channel.GET_CHANNEL_MESSAGE.getParameterCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileMissingParameters() {
+        HttpPath.Channel.GET_CHANNEL_MESSAGE.compile("1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompileExtraParameters() {
+        HttpPath.Guild.GET_GUILD.compile("1", "2");
+    }
+
+    @Test
+    public void testRouteAndMajorParameters() {
+        HttpPath path = HttpPath.Channel.GET_CHANNEL_MESSAGES_BEFORE;
+        assertEquals("GET " + HttpPath.DISCORD_API_URL + "/channels/{channel.id}/messages", path.getRoute());
+        assertEquals("1", path.getMajorParameters("1", 100, "2"));
+        assertEquals("", HttpPath.Gateway.GET_GATEWAY.getMajorParameters());
+    }
+
+}
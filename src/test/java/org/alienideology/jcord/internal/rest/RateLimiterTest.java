@@ -0,0 +1,161 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import org.alienideology.jcord.handle.rest.RequestPriority;
+import org.alienideology.jcord.util.log.LogLevel;
+import org.alienideology.jcord.util.log.Logger;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RateLimiterTest - Holds requests by their buckets and the global rate limit.
+ *
+ * @author AlienIdeology
+ */
+public class RateLimiterTest {
+
+    private static final String ROUTE = "GET /channels/{channel.id}/messages";
+
+    private final RateLimiter rateLimiter = new RateLimiter(new Logger("RateLimiter").setIgnoreLevels(LogLevel.WARN, LogLevel.DEBUG));
+
+    @Test
+    public void testBucketOrder() throws Exception {
+        RateLimiter.Bucket bucket = rateLimiter.getBucket(ROUTE, "1");
+        bucket.update(5, 0, System.currentTimeMillis() + 300);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(acquire(bucket, RequestPriority.INTERACTIVE, "first", order));
+        threads.add(acquire(bucket, RequestPriority.BACKGROUND, "background", order));
+        threads.add(acquire(bucket, RequestPriority.INTERACTIVE, "second", order));
+        threads.add(acquire(bucket, RequestPriority.MODERATION, "moderation", order));
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        // Ordered by priority then by arrival, once the bucket resets
+        assertEquals(Arrays.asList("moderation", "first", "second", "background"), order);
+    }
+
+    @Test
+    public void testGlobalHoldsRequests() throws Exception {
+        RateLimiter.Bucket bucket = rateLimiter.getBucket(ROUTE, "1");
+        bucket.acquire();
+        long resetAt = System.currentTimeMillis() + 200;
+        assertFalse(rateLimiter.update(ROUTE, bucket, response(429, "X-RateLimit-Global", "true", "Retry-After", "200")));
+        assertTrue(rateLimiter.isGlobalRateLimited());
+
+        // Requests of every bucket wait until the global limit resets
+        List<Long> released = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(start(() -> {
+                rateLimiter.awaitGlobal();
+                released.add(System.currentTimeMillis());
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertFalse(rateLimiter.isGlobalRateLimited());
+        assertEquals(4, released.size());
+        for (long time : released) {
+            assertTrue(time >= resetAt);
+        }
+    }
+
+    @Test
+    public void testBucketsByMajorParameters() {
+        assertSame(rateLimiter.getBucket(ROUTE, "1"), rateLimiter.getBucket(ROUTE, "1"));
+        assertNotSame(rateLimiter.getBucket(ROUTE, "1"), rateLimiter.getBucket(ROUTE, "2"));
+    }
+
+    @Test
+    public void testBucketHashKeepsBucket() {
+        RateLimiter.Bucket bucket = rateLimiter.getBucket(ROUTE, "1");
+        bucket.acquire();
+        assertTrue(rateLimiter.update(ROUTE, bucket, response(200, "X-RateLimit-Bucket", "abc",
+                "X-RateLimit-Limit", "5", "X-RateLimit-Remaining", "3", "X-RateLimit-Reset-After", "1")));
+
+        // The bucket used before the hash was learned is kept with its state
+        assertSame(bucket, rateLimiter.getBucket(ROUTE, "1"));
+        assertEquals(5, bucket.getLimit());
+        assertEquals(3, bucket.getRemaining());
+
+        // Routes of the same hash share their buckets
+        String other = "DELETE /channels/{channel.id}/messages/{message.id}";
+        RateLimiter.Bucket otherBucket = rateLimiter.getBucket(other, "1");
+        otherBucket.acquire();
+        rateLimiter.update(other, otherBucket, response(200, "X-RateLimit-Bucket", "abc",
+                "X-RateLimit-Limit", "5", "X-RateLimit-Remaining", "2", "X-RateLimit-Reset-After", "1"));
+        assertSame(bucket, rateLimiter.getBucket(other, "1"));
+    }
+
+    @Test
+    public void testLateResponseDoesNotRaiseRemaining() {
+        RateLimiter.Bucket bucket = rateLimiter.getBucket(ROUTE, "1");
+        long now = System.currentTimeMillis();
+        bucket.update(5, 2, now + 1000);
+        bucket.update(5, 4, now + 1000);
+        assertEquals(2, bucket.getRemaining());
+
+        bucket.update(5, 1, now + 1000);
+        assertEquals(1, bucket.getRemaining());
+
+        // A response of a window that already reset
+        bucket.update(5, 4, now - 1000);
+        assertEquals(1, bucket.getRemaining());
+    }
+
+    @Test
+    public void testServerErrorKeepsBucket() {
+        RateLimiter.Bucket bucket = rateLimiter.getBucket(ROUTE, "1");
+        bucket.update(5, 2, System.currentTimeMillis() + 1000);
+        assertTrue(rateLimiter.update(ROUTE, bucket, response(502)));
+        assertEquals(5, bucket.getLimit());
+        assertEquals(2, bucket.getRemaining());
+    }
+
+    private static Thread acquire(RateLimiter.Bucket bucket, RequestPriority priority, String name, List<String> order)
+            throws InterruptedException {
+        return start(() -> {
+            bucket.acquire(priority);
+            order.add(name);
+            bucket.release();
+        });
+    }
+
+    private static Thread start(Runnable runnable) throws InterruptedException {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+        // Queue the threads in the order they are started
+        Thread.sleep(30);
+        return thread;
+    }
+
+    private static HttpResponse<JsonNode> response(int status, String... headers) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+        response.setEntity(new StringEntity("{}", "UTF-8"));
+        for (int i = 0; i < headers.length; i += 2) {
+            response.addHeader(headers[i], headers[i + 1]);
+        }
+        return new HttpResponse<>(response, JsonNode.class);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ResponseCacheTest - Caches responses by their time to live, ETag and ids.
+ *
+ * @author AlienIdeology
+ */
+public class ResponseCacheTest {
+
+    private static final HttpPath GUILD = HttpPath.Guild.GET_GUILD;
+    private static final HttpPath CHANNEL = HttpPath.Channel.GET_CHANNEL;
+
+    @Test
+    public void testOnlyCachedRoutes() {
+        ResponseCache cache = new ResponseCache();
+        cache.put(HttpPath.Gateway.GET_GATEWAY, "gateway", new Object[0], response(200, null));
+        cache.put(GUILD, "guild-1", new Object[]{"1"}, response(404, null));
+        assertEquals(0, cache.size());
+
+        cache.put(GUILD, "guild-1", new Object[]{"1"}, response(200, null));
+        assertNotNull(cache.getEntry("guild-1"));
+    }
+
+    @Test
+    public void testTimeToLive() throws Exception {
+        ResponseCache cache = new ResponseCache().setTimeToLive(GUILD, 50, TimeUnit.MILLISECONDS);
+        cache.put(GUILD, "guild-1", new Object[]{"1"}, response(200, null));
+        cache.put(GUILD, "guild-2", new Object[]{"2"}, response(200, "\"etag\""));
+        assertFalse(cache.getEntry("guild-1").isExpired(System.currentTimeMillis()));
+
+        Thread.sleep(60);
+        ResponseCache.Entry entry = cache.getEntry("guild-2");
+        assertTrue(entry.isExpired(System.currentTimeMillis()));
+
+        // Expired responses with an ETag are kept to be revalidated
+        cache.evictExpired();
+        assertNull(cache.getEntry("guild-1"));
+        assertEquals("\"etag\"", entry.getETag());
+
+        cache.revalidate("guild-2", entry);
+        assertFalse(cache.getEntry("guild-2").isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testInvalidate() {
+        ResponseCache cache = new ResponseCache();
+        cache.put(GUILD, "guild-1", new Object[]{"1"}, response(200, null));
+        cache.put(GUILD, "guild-2", new Object[]{"2"}, response(200, null));
+        cache.put(CHANNEL, "channel-1", new Object[]{"1"}, response(200, null));
+
+        cache.invalidate(GUILD, "1");
+        assertNull(cache.getEntry("guild-1"));
+        assertNotNull(cache.getEntry("channel-1"));
+
+        cache.invalidate("1");
+        assertNull(cache.getEntry("channel-1"));
+
+        cache.setTimeToLive(GUILD, 0, TimeUnit.SECONDS);
+        assertEquals(0, cache.size());
+        assertFalse(cache.isCached(GUILD));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put(GUILD, "guild-1", new Object[]{"1"}, response(200, null));
+        cache.put(GUILD, "guild-2", new Object[]{"2"}, response(200, null));
+        cache.getEntry("guild-1");
+        cache.put(GUILD, "guild-3", new Object[]{"3"}, response(200, null));
+
+        assertNotNull(cache.getEntry("guild-1"));
+        assertNull(cache.getEntry("guild-2"));
+    }
+
+    private static HttpResponse<JsonNode> response(int status, String etag) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+        response.setEntity(new StringEntity("{}", "UTF-8"));
+        if (etag != null) {
+            response.addHeader("ETag", etag);
+        }
+        return new HttpResponse<>(response, JsonNode.class);
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.alienideology.jcord.internal.rest;
+
+import com.mashape.unirest.http.HttpMethod;
+import org.alienideology.jcord.internal.exception.HttpErrorException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * RetryPolicyTest - Retries idempotent requests with a backoff, and opens the circuits of failing buckets.
+ *
+ * @author AlienIdeology
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testCanRetry() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 1000, 5, 1000);
+        assertTrue(policy.canRetry(HttpMethod.GET, 1));
+        assertFalse(policy.canRetry(HttpMethod.GET, 2));
+        assertFalse(policy.canRetry(HttpMethod.POST, 0));
+        assertFalse(RetryPolicy.never().canRetry(HttpMethod.GET, 0));
+    }
+
+    @Test
+    public void testBackoff() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, 5, 1000);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getBackoff(0);
+            long third = policy.getBackoff(2);
+            long capped = policy.getBackoff(40);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(third >= 0 && third <= 400);
+            assertTrue(capped >= 0 && capped <= 1000);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPolicy() {
+        new RetryPolicy(1, 1000, 100, 5, 1000);
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        RetryPolicy policy = new RetryPolicy(3, 0, 0, 2, 50);
+        String failing = RateLimiter.getKey("GET /channels/{channel.id}", "1");
+        String other = RateLimiter.getKey("GET /channels/{channel.id}", "2");
+
+        policy.onFailure(failing);
+        policy.checkCircuit(failing);
+        policy.onFailure(failing);
+        assertTrue(policy.isCircuitOpen(failing));
+        assertFalse(policy.isCircuitOpen(other));
+        try {
+            policy.checkCircuit(failing);
+            fail("The circuit is not open");
+        } catch (HttpErrorException expected) {
+            // Suspended
+        }
+        policy.checkCircuit(other);
+
+        // Half open, a single trial request is let through
+        Thread.sleep(60);
+        policy.checkCircuit(failing);
+        assertTrue(policy.isCircuitOpen(failing));
+        policy.onSuccess(failing);
+        assertFalse(policy.isCircuitOpen(failing));
+        policy.checkCircuit(failing);
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.alienideology.jcord.internal.rest;
+
+import org.alienideology.jcord.handle.message.Upload;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * UploadBodyTest - Streams uploads by their sizes and the size limit of a message.
+ *
+ * @author AlienIdeology
+ */
+public class UploadBodyTest {
+
+    @Test
+    public void testSizes() {
+        assertEquals(3, Upload.of(new byte[3], "a.txt").getSize());
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[10]);
+        buffer.position(4);
+        assertEquals(6, Upload.of(buffer, "a.txt").getSize());
+        assertEquals(-1, Upload.of(new ByteArrayInputStream(new byte[0]), -1, "a.txt").getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyName() {
+        Upload.of(new byte[1], "");
+    }
+
+    @Test
+    public void testBufferIsSentAgain() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        UploadBody body = body(Upload.of(buffer, "a.bin"));
+        assertArrayEquals(new byte[]{1, 2, 3}, write(body));
+        assertArrayEquals(new byte[]{1, 2, 3}, write(body));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testStreamOfDeclaredSize() throws Exception {
+        UploadBody body = body(Upload.of(new ByteArrayInputStream(new byte[100]), 100, "a.bin"));
+        assertEquals(100, body.getContentLength());
+        assertEquals(100, write(body).length);
+
+        // A rate limited request sends the kept stream again
+        assertEquals(100, write(body).length);
+    }
+
+    @Test
+    public void testStreamShorterOrLongerThanSize() {
+        assertFails(body(Upload.of(new ByteArrayInputStream(new byte[50]), 100, "a.bin")), "ended after 50");
+        assertFails(body(Upload.of(new ByteArrayInputStream(new byte[150]), 100, "a.bin")), "longer than its size");
+    }
+
+    @Test
+    public void testUnknownSizeIsLimited() throws Exception {
+        AtomicLong remaining = new AtomicLong(10);
+        assertEquals(5, write(new UploadBody(Upload.of(new ByteArrayInputStream(new byte[5]), -1, "a.bin"), remaining)).length);
+
+        // The uploads of a message share the size limit
+        assertFails(new UploadBody(Upload.of(new ByteArrayInputStream(new byte[10]), -1, "b.bin"), remaining), "size limit");
+    }
+
+    @Test
+    public void testLargeStreamIsNotSentAgain() throws Exception {
+        UploadBody body = body(Upload.of(new ByteArrayInputStream(new byte[UploadBody.REPLAY_SIZE + 1]), -1, "a.bin"));
+        assertEquals(UploadBody.REPLAY_SIZE + 1, write(body).length);
+        assertFails(body, "cannot be retried");
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        File file = File.createTempFile("jcord-upload", ".bin");
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[1000]);
+            }
+            UploadBody body = body(Upload.of(file));
+            assertEquals(1000, write(body).length);
+
+            // The size was read when the upload was created
+            try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+                access.setLength(10);
+            }
+            assertFails(body, "shorter than its size");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static UploadBody body(Upload upload) {
+        return new UploadBody(upload, new AtomicLong(Upload.MAX_SIZE));
+    }
+
+    private static byte[] write(UploadBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static void assertFails(UploadBody body, String message) {
+        try {
+            write(body);
+            fail("The upload was sent");
+        } catch (IOException expected) {
+            if (!expected.getMessage().contains(message)) {
+                fail("Unexpected failure: " + expected.getMessage());
+            }
+        }
+    }
+
+}